@@ -29,14 +29,40 @@ public class DooyaCurtainsBindingConstants {
     // List of all Thing Type UIDs
     public static final ThingTypeUID CURTAIN_THING = new ThingTypeUID(BINDING_ID, "curtain");
     public static final ThingTypeUID RS485_BRIDGE = new ThingTypeUID(BINDING_ID, "rs485");
+    public static final ThingTypeUID TCP_BRIDGE = new ThingTypeUID(BINDING_ID, "tcp");
+    public static final ThingTypeUID GROUP_THING = new ThingTypeUID(BINDING_ID, "group");
 
     // List of all Channel ids
     public static final String POSITION = "position";
     public static final String STATE = "state";
     public static final String INVERTED = "inverted";
 
+    // Motor registers
+    public static final byte REGISTER_POSITION = 0x02;
+    public static final byte REGISTER_DIRECTION = 0x03;
+    public static final byte REGISTER_STATE = 0x05;
+
+    // Bus metric channels of the bridge
+    public static final String TRANSACTION_RATE = "transactionRate";
+    public static final String LATENCY_P50 = "latencyP50";
+    public static final String LATENCY_P95 = "latencyP95";
+    public static final String LATENCY_P99 = "latencyP99";
+    public static final String QUEUE_DEPTH = "queueDepth";
+    public static final String QUEUE_WAIT = "queueWait";
+    public static final String BUS_UTILIZATION = "busUtilization";
+    public static final String TIMEOUTS = "timeouts";
+    public static final String ERRORS = "errors";
+    public static final String RETRIES = "retries";
+    public static final String MERGED_REQUESTS = "mergedRequests";
+    public static final String DROPPED_REQUESTS = "droppedRequests";
+    public static final String MOTOR_STATISTICS = "motorStatistics";
+    public static final String POLL_SCHEDULE = "pollSchedule";
+
+    // Bridge property holding the next address of an interrupted address scan
+    public static final String DISCOVERY_PROGRESS = "Discovery progress";
+
     ///
     public static final String PROGRAM_SWITCH = "setaddress";
     // public static final String PROGRAM_ADDRESS = "address";
-    // public static final String PROGRAM_STATUS = "status";
+    public static final String PROGRAM_STATUS = "status";
 }
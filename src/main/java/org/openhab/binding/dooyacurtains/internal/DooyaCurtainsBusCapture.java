@@ -0,0 +1,243 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DooyaCurtainsBusCapture} class appends the raw bus traffic to a binary file. Every record
+ * holds the {@link System#nanoTime()} timestamp, the direction and the bytes as they were written to or
+ * read from the transport. Records are collected in one of two direct buffers. A full or flushed buffer
+ * is swapped for the other one and written out without holding the lock of the recording methods, so
+ * the bus thread only copies a few bytes per frame and never waits for the disk while the other buffer
+ * is free. When the file reaches its maximum size
+ * it is renamed to {@code name.1}, older files are shifted up to the configured count. Every start of the
+ * capture begins with a new file.
+ *
+ * A file starts with the magic {@code DYCP}, a format version and the wall clock time in milliseconds
+ * together with the nano time taken at the same moment, so timestamps can be converted to dates.
+ * Records are: timestamp (8 bytes), direction (1 byte, 0 sent, 1 received), length (2 bytes), data.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsBusCapture implements AutoCloseable {
+
+    public static final int MAGIC = 0x44594350;
+    public static final int VERSION = 1;
+    public static final int HEADER_LENGTH = 4 + 4 + 8 + 8;
+    public static final byte SENT = 0;
+    public static final byte RECEIVED = 1;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Logger logger = LoggerFactory.getLogger(DooyaCurtainsBusCapture.class);
+    private final Path file;
+    private final long maxFileSize;
+    private final int maxFiles;
+    // buffer taking the records and the free one, null while it is written out, guarded by this
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private @Nullable ByteBuffer spare = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private boolean closed;
+    // guards the file, taken before this when both are needed
+    private final Object writeLock = new Object();
+    private volatile @Nullable FileChannel channel;
+    private long fileSize;
+
+    /**
+     * @param file path of the current capture file, rotated files get a number appended
+     * @param maxFileSize size in bytes at which the file is rotated
+     * @param maxFiles number of files kept including the current one
+     */
+    public DooyaCurtainsBusCapture(Path file, long maxFileSize, int maxFiles) throws IOException {
+        this.file = file;
+        this.maxFileSize = Math.max(maxFileSize, BUFFER_SIZE);
+        this.maxFiles = Math.max(maxFiles, 1);
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        // timestamps of an earlier run do not match the header of a new one, start a new file
+        if (Files.exists(file) && Files.size(file) > 0) {
+            rotate();
+        } else {
+            openFile();
+        }
+    }
+
+    public void sent(byte[] data, int offset, int length) {
+        append(SENT, data, offset, length);
+    }
+
+    public void received(byte[] data, int offset, int length) {
+        append(RECEIVED, data, offset, length);
+    }
+
+    private void append(byte direction, byte[] data, int offset, int length) {
+        if (channel == null || 11 + length > BUFFER_SIZE) {
+            return;
+        }
+        long timestamp = System.nanoTime();
+        ByteBuffer full = null;
+        synchronized (this) {
+            // both buffers are in use, wait until the other one has been written
+            while (!closed && buffer.remaining() < 11 + length && spare == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+            if (closed) {
+                return;
+            }
+            if (buffer.remaining() < 11 + length) {
+                full = swap();
+            }
+            buffer.putLong(timestamp).put(direction).putShort((short) length).put(data, offset, length);
+        }
+        if (full != null) {
+            write(full);
+        }
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     */
+    public void flush() {
+        ByteBuffer full;
+        synchronized (this) {
+            // while the other buffer is written out the records stay for the next flush
+            full = buffer.position() > 0 ? swap() : null;
+        }
+        if (full != null) {
+            write(full);
+        }
+    }
+
+    /**
+     * Replaces the buffer taking the records with the free one.
+     *
+     * @return the previous buffer or null if the other buffer is still written out
+     */
+    private @Nullable ByteBuffer swap() {
+        ByteBuffer free = spare;
+        if (free == null) {
+            return null;
+        }
+        ByteBuffer full = buffer;
+        buffer = free;
+        spare = null;
+        return full;
+    }
+
+    private void write(ByteBuffer full) {
+        synchronized (writeLock) {
+            writeBuffer(full);
+            synchronized (this) {
+                spare = full;
+                notifyAll();
+            }
+        }
+    }
+
+    private void writeBuffer(ByteBuffer buffer) {
+        FileChannel channel = this.channel;
+        if (channel == null || buffer.position() == 0) {
+            buffer.clear();
+            return;
+        }
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining()) {
+                fileSize += channel.write(buffer);
+            }
+            if (fileSize >= maxFileSize) {
+                rotate();
+            }
+        } catch (IOException e) {
+            logger.warn("Stopping bus capture to {}: {}", file, e.getMessage());
+            closeFile();
+        }
+        buffer.clear();
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        for (int i = maxFiles - 1; i > 0; i--) {
+            Path source = i > 1 ? rotated(i - 1) : file;
+            if (Files.exists(source)) {
+                Files.move(source, rotated(i), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.deleteIfExists(file);
+        openFile();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    private void openFile() throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        fileSize = channel.size();
+        if (fileSize == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.putInt(MAGIC).putInt(VERSION).putLong(System.currentTimeMillis()).putLong(System.nanoTime());
+            header.flip();
+            while (header.hasRemaining()) {
+                fileSize += channel.write(header);
+            }
+        }
+        this.channel = channel;
+    }
+
+    private void closeFile() {
+        FileChannel channel = this.channel;
+        this.channel = null;
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.debug("Cannot close {}: {}", file, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (writeLock) {
+            ByteBuffer last;
+            synchronized (this) {
+                closed = true;
+                last = buffer;
+                notifyAll();
+            }
+            writeBuffer(last);
+            closeFile();
+        }
+    }
+}
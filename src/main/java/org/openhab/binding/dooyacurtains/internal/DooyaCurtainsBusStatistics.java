@@ -0,0 +1,167 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsBusStatistics} class collects the performance of a bus. Per address counters
+ * are kept for the lifetime of the bridge, while rates, latency percentiles, queue wait, utilization and
+ * the timeout, error and retry counts are computed over the window since the previous {@link #snapshot()}.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsBusStatistics {
+
+    private static final int LATENCY_SAMPLES = 1024;
+
+    /**
+     * Bus figures of one window.
+     */
+    public static class Snapshot {
+        public double transactionRate;
+        public double latencyP50;
+        public double latencyP95;
+        public double latencyP99;
+        public double queueWait;
+        public double busUtilization;
+        public long timeouts;
+        public long errors;
+        public long retries;
+    }
+
+    /**
+     * Totals of a single motor address.
+     */
+    public static class AddressCounters {
+        public long transactions;
+        public long timeouts;
+        public long errors;
+        public long retries;
+
+        @Override
+        public String toString() {
+            return "transactions=" + transactions + ", timeouts=" + timeouts + ", errors=" + errors + ", retries="
+                    + retries;
+        }
+    }
+
+    // latest round-trip times in nanoseconds, used as ring buffer
+    private final long[] latencies = new long[LATENCY_SAMPLES];
+    private int latencyCount;
+    private final Map<Integer, AddressCounters> addresses = new HashMap<>();
+    private long windowStart = System.nanoTime();
+    private long windowTransactions;
+    private long windowBusy;
+    private long windowQueueWait;
+    private long windowQueued;
+    private long windowTimeouts;
+    private long windowErrors;
+    private long windowRetries;
+
+    /**
+     * Records a completed bus transaction.
+     *
+     * @param busy time the bus was occupied by the transaction, in nanoseconds
+     * @param timeout no complete answer arrived in time
+     * @param error an answer arrived but it is not valid
+     */
+    public synchronized void recordTransaction(int address, long busy, boolean timeout, boolean error) {
+        AddressCounters counters = addresses.computeIfAbsent(address, a -> new AddressCounters());
+        counters.transactions++;
+        windowTransactions++;
+        windowBusy += busy;
+        if (timeout) {
+            counters.timeouts++;
+            windowTimeouts++;
+        } else if (error) {
+            counters.errors++;
+            windowErrors++;
+        } else {
+            latencies[latencyCount++ % LATENCY_SAMPLES] = busy;
+        }
+    }
+
+    public synchronized void recordQueueWait(long wait) {
+        windowQueueWait += wait;
+        windowQueued++;
+    }
+
+    public synchronized void recordRetry(int address) {
+        addresses.computeIfAbsent(address, a -> new AddressCounters()).retries++;
+        windowRetries++;
+    }
+
+    /**
+     * Returns the figures since the previous snapshot and starts a new window.
+     */
+    public synchronized Snapshot snapshot() {
+        long now = System.nanoTime();
+        double window = Math.max(1, now - windowStart);
+        Snapshot snapshot = new Snapshot();
+        snapshot.transactionRate = windowTransactions * TimeUnit.SECONDS.toNanos(1) / window;
+        snapshot.busUtilization = Math.min(100, windowBusy * 100 / window);
+        snapshot.queueWait = windowQueued == 0 ? 0 : toMillis(windowQueueWait / windowQueued);
+        long[] sorted = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_SAMPLES));
+        Arrays.sort(sorted);
+        snapshot.latencyP50 = percentile(sorted, 0.50);
+        snapshot.latencyP95 = percentile(sorted, 0.95);
+        snapshot.latencyP99 = percentile(sorted, 0.99);
+        snapshot.timeouts = windowTimeouts;
+        snapshot.errors = windowErrors;
+        snapshot.retries = windowRetries;
+        windowStart = now;
+        windowTransactions = 0;
+        windowTimeouts = 0;
+        windowErrors = 0;
+        windowRetries = 0;
+        windowBusy = 0;
+        windowQueueWait = 0;
+        windowQueued = 0;
+        latencyCount = 0;
+        return snapshot;
+    }
+
+    /**
+     * Returns a copy of the counters of every address seen so far.
+     */
+    public synchronized Map<Integer, AddressCounters> getAddressCounters() {
+        Map<Integer, AddressCounters> copy = new HashMap<>();
+        addresses.forEach((address, counters) -> {
+            AddressCounters c = new AddressCounters();
+            c.transactions = counters.transactions;
+            c.timeouts = counters.timeouts;
+            c.errors = counters.errors;
+            c.retries = counters.retries;
+            copy.put(address, c);
+        });
+        return copy;
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return toMillis(sorted[(int) Math.ceil(quantile * sorted.length) - 1]);
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+}
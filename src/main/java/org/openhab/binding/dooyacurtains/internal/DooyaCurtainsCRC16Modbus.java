@@ -70,6 +70,26 @@ public class DooyaCurtainsCRC16Modbus implements Checksum {
         sum = (sum >> 8) ^ TABLE[((sum) ^ (b & 0xff)) & 0xff];
     }
 
+    /**
+     * Calculates the CRC of a range of the buffer without allocating.
+     */
+    public static int compute(byte[] buffer, int offset, int length) {
+        int crc = 0xFFFF;
+        for (int i = offset; i < offset + length; i++) {
+            crc = (crc >> 8) ^ TABLE[(crc ^ buffer[i]) & 0xff];
+        }
+        return crc;
+    }
+
+    /**
+     * Writes the CRC of a range of the buffer, low byte first, to the two bytes following it.
+     */
+    public static void append(byte[] buffer, int offset, int length) {
+        int crc = compute(buffer, offset, length);
+        buffer[offset + length] = (byte) crc;
+        buffer[offset + length + 1] = (byte) (crc >>> 8);
+    }
+
     public byte[] getCrcBytes() {
         long crc = (int) this.getValue();
         byte[] byteStr = new byte[2];
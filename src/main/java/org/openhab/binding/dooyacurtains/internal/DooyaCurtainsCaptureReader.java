@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsCaptureReader} class reads a file written by {@link DooyaCurtainsBusCapture}
+ * record by record, e.g. to replay the traffic of an installation.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsCaptureReader implements AutoCloseable {
+
+    private final DataInputStream input;
+    private final long startMillis;
+    private final long startNanos;
+    private final byte[] data = new byte[0xFFFF];
+    private long timestamp;
+    private byte direction;
+    private int length;
+
+    public DooyaCurtainsCaptureReader(Path file) throws IOException {
+        input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if (input.readInt() != DooyaCurtainsBusCapture.MAGIC) {
+                throw new IOException(file + " is not a bus capture");
+            }
+            int version = input.readInt();
+            if (version != DooyaCurtainsBusCapture.VERSION) {
+                throw new IOException("Unsupported capture version " + version);
+            }
+            startMillis = input.readLong();
+            startNanos = input.readLong();
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return false at the end of the file, also when the last record was cut off
+     */
+    public boolean next() throws IOException {
+        try {
+            timestamp = input.readLong();
+            direction = input.readByte();
+            length = input.readUnsignedShort();
+            input.readFully(data, 0, length);
+            return true;
+        } catch (EOFException e) {
+            length = 0;
+            return false;
+        }
+    }
+
+    /**
+     * Returns the {@link System#nanoTime()} at which the record was captured.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Returns the wall clock time of the record in milliseconds since the epoch.
+     */
+    public long getTime() {
+        return startMillis + (timestamp - startNanos) / 1_000_000;
+    }
+
+    public boolean isSent() {
+        return direction == DooyaCurtainsBusCapture.SENT;
+    }
+
+    /**
+     * Returns the record data, valid until the next call of {@link #next()}.
+     */
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
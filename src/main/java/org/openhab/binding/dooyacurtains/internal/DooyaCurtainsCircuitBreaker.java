@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsCircuitBreaker} class tracks the answers of one motor. After a number of
+ * consecutive failures the breaker opens and status polls are only let through as probes, with the
+ * time between probes doubling up to a maximum. The first valid answer closes the breaker again.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsCircuitBreaker {
+
+    private final int failureThreshold;
+    private final long minimumBackoff;
+    private final long maximumBackoff;
+    private int consecutiveFailures;
+    private boolean open;
+    private long backoff;
+    private long nextProbe;
+
+    /**
+     * @param failureThreshold consecutive failures after which the breaker opens
+     * @param minimumBackoff time until the first probe in nanoseconds
+     * @param maximumBackoff longest time between probes in nanoseconds
+     */
+    public DooyaCurtainsCircuitBreaker(int failureThreshold, long minimumBackoff, long maximumBackoff) {
+        this.failureThreshold = failureThreshold;
+        this.minimumBackoff = minimumBackoff;
+        this.maximumBackoff = Math.max(minimumBackoff, maximumBackoff);
+    }
+
+    /**
+     * Returns whether a status poll may use the bus. While the breaker is open only one probe is let
+     * through per backoff period.
+     */
+    public synchronized boolean allowPoll(long now) {
+        if (!open) {
+            return true;
+        }
+        if (now - nextProbe >= 0) {
+            nextProbe = now + backoff;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a transaction without a valid answer.
+     *
+     * @return true if the breaker has just opened
+     */
+    public synchronized boolean recordFailure(long now) {
+        consecutiveFailures++;
+        if (open) {
+            backoff = Math.min(backoff * 2, maximumBackoff);
+            nextProbe = now + backoff;
+            return false;
+        }
+        if (consecutiveFailures >= failureThreshold) {
+            open = true;
+            backoff = minimumBackoff;
+            nextProbe = now + backoff;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records a valid answer.
+     *
+     * @return true if the breaker has just closed
+     */
+    public synchronized boolean recordSuccess() {
+        consecutiveFailures = 0;
+        if (open) {
+            open = false;
+            return true;
+        }
+        return false;
+    }
+
+    public synchronized boolean isOpen() {
+        return open;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
@@ -23,5 +23,27 @@ import org.eclipse.jdt.annotation.NonNullByDefault;
 public class DooyaCurtainsConfiguration {
 
     public String address = "";
+    public String members = "";
     public String serialPort = "";
+    public int baudRate = 9600;
+    public String host = "";
+    public int port;
+    public int fastPollingInterval = 300;
+    public int idlePollingInterval = 30;
+    public int positionDeadband = 1;
+    public int refreshMaxAge = 0;
+    public int commandDebounce = 100;
+    public int responseTimeout = 200;
+    public int maxQueueDepth = 100;
+    public int retries = 1;
+    public int metricsInterval = 10;
+    public int failureThreshold = 3;
+    public int minimumProbeInterval = 5;
+    public int maximumProbeInterval = 300;
+    public String discoveryRanges = "0001-00FF,FEFE";
+    public int discoveryTimeout = 50;
+    public int programmingTimeout = 60;
+    public boolean capture;
+    public int captureFileSize = 10;
+    public int captureFiles = 3;
 }
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsDeviceInfo} class holds the facts about a motor which do not change in normal
+ * operation. It is kept in the binding storage, keyed by bridge and address, so a curtain can go online
+ * after a restart before the motor has answered.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsDeviceInfo {
+
+    public int protocolVersion = -1;
+    // the position register reads 0xFF until the limits have been set
+    public boolean limitsSet;
+    // 0 direct, 1 reverse, -1 unknown
+    public int direction = -1;
+
+    public DooyaCurtainsDeviceInfo copy() {
+        DooyaCurtainsDeviceInfo copy = new DooyaCurtainsDeviceInfo();
+        copy.protocolVersion = protocolVersion;
+        copy.limitsSet = limitsSet;
+        copy.direction = direction;
+        return copy;
+    }
+
+    public boolean sameAs(DooyaCurtainsDeviceInfo other) {
+        return protocolVersion == other.protocolVersion && limitsSet == other.limitsSet
+                && direction == other.direction;
+    }
+
+    /**
+     * Returns the storage key of a motor.
+     */
+    public static String key(String bridgeUID, byte[] address) {
+        return bridgeUID + ":" + String.format("%02X%02X", address[0], address[1]);
+    }
+}
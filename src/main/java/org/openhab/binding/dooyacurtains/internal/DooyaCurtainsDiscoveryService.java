@@ -0,0 +1,214 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.binding.dooyacurtains.internal.DooyaCurtainsTransaction.Priority;
+import org.openhab.core.config.discovery.AbstractThingHandlerDiscoveryService;
+import org.openhab.core.config.discovery.DiscoveryResultBuilder;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingStatus;
+import org.openhab.core.thing.ThingUID;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.ServiceScope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DooyaCurtainsDiscoveryService} scans the address ranges configured on the RS485 bridge for
+ * motors answering the protocol version read. Probes are queued with the lowest priority and a short
+ * timeout, one at a time, so commands and status polls always go first. A scan which is stopped early
+ * is continued at the same address by the next one.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@Component(scope = ServiceScope.PROTOTYPE, service = DooyaCurtainsDiscoveryService.class)
+@NonNullByDefault
+public class DooyaCurtainsDiscoveryService
+        extends AbstractThingHandlerDiscoveryService<DooyaCurtainsRS485BridgeHandler> {
+
+    private static final int SCAN_TIMEOUT = 600;
+    private final Logger logger = LoggerFactory.getLogger(DooyaCurtainsDiscoveryService.class);
+    private List<int[]> ranges = List.of();
+    private Set<Integer> knownAddresses = Set.of();
+    private volatile boolean scanning;
+    private int cursor;
+
+    public DooyaCurtainsDiscoveryService() {
+        super(DooyaCurtainsRS485BridgeHandler.class, Set.of(CURTAIN_THING), SCAN_TIMEOUT, false);
+    }
+
+    @Override
+    protected void startScan() {
+        if (thingHandler.getThing().getStatus() != ThingStatus.ONLINE) {
+            // every probe would fail at once, keep the resume point for a scan on a connected bus
+            logger.debug("Bus is not connected, address scan not started");
+            stopScan();
+            return;
+        }
+        ranges = parseRanges(thingHandler.getDiscoveryRanges());
+        knownAddresses = knownAddresses();
+        int size = size();
+        if (size == 0) {
+            logger.debug("No address range to scan");
+            return;
+        }
+        int next = thingHandler.getDiscoveryProgress();
+        cursor = 0;
+        if (next >= 0) {
+            for (int i = 0; i < size; i++) {
+                if (addressAt(i) == next) {
+                    cursor = i;
+                    break;
+                }
+            }
+        }
+        logger.debug("Scanning {} addresses starting at {}", size, String.format("%04X", addressAt(cursor)));
+        scanning = true;
+        probeNext();
+    }
+
+    @Override
+    protected synchronized void stopScan() {
+        if (scanning) {
+            scanning = false;
+            int size = size();
+            thingHandler.setDiscoveryProgress(size > 0 && cursor < size ? addressAt(cursor) : -1);
+        }
+        super.stopScan();
+    }
+
+    private void probeNext() {
+        int address;
+        synchronized (this) {
+            while (scanning && cursor < size() && knownAddresses.contains(addressAt(cursor))) {
+                cursor++;
+            }
+            if (!scanning) {
+                return;
+            }
+            if (cursor >= size()) {
+                // the whole range has been scanned, the next scan starts from the beginning
+                cursor = 0;
+                scanning = false;
+                thingHandler.setDiscoveryProgress(-1);
+                logger.debug("Address scan finished");
+                return;
+            }
+            address = addressAt(cursor);
+        }
+        byte[] request = new byte[] { 0x55, (byte) (address >> 8), (byte) address, 0x01, (byte) 0xFE, 0x01 };
+        DooyaCurtainsTransaction transaction = new DooyaCurtainsTransaction(null, null, request, Priority.DISCOVERY);
+        transaction.timeout = thingHandler.getDiscoveryTimeout();
+        thingHandler.submit(transaction).whenComplete((answer, error) -> {
+            if (error != null) {
+                // the probe was cancelled by a full queue or the disposal of the bridge, or the bus is down,
+                // not answered by the address: the scan resumes at this address later
+                synchronized (this) {
+                    if (scanning) {
+                        scanning = false;
+                        thingHandler.setDiscoveryProgress(addressAt(cursor));
+                        logger.debug("Address scan interrupted at {}", String.format("%04X", address));
+                    }
+                }
+                return;
+            }
+            if (answer != null && answer[0] == 0x55 && answer[1] == request[1] && answer[2] == request[2]) {
+                discovered(address, answer[5] & 0xFF);
+            }
+            synchronized (this) {
+                if (cursor < size() && addressAt(cursor) == address) {
+                    cursor++;
+                }
+            }
+            probeNext();
+        });
+    }
+
+    private void discovered(int address, int version) {
+        String hex = String.format("%04X", address);
+        logger.debug("Found motor {} with protocol version {}", hex, version);
+        ThingUID bridgeUID = thingHandler.getThing().getUID();
+        thingDiscovered(DiscoveryResultBuilder.create(new ThingUID(CURTAIN_THING, bridgeUID, hex))
+                .withBridge(bridgeUID).withLabel("Dooya curtain " + hex).withProperty("address", hex)
+                .withProperty("Protocol version:", String.valueOf(version)).withRepresentationProperty("address")
+                .build());
+    }
+
+    private Set<Integer> knownAddresses() {
+        Set<Integer> addresses = new HashSet<>();
+        for (Thing thing : thingHandler.getThing().getThings()) {
+            Object address = thing.getConfiguration().get("address");
+            if (address != null) {
+                try {
+                    addresses.add(Integer.parseInt(address.toString(), 16));
+                } catch (NumberFormatException e) {
+                    // not a curtain address
+                }
+            }
+        }
+        return addresses;
+    }
+
+    private int size() {
+        int size = 0;
+        for (int[] range : ranges) {
+            size += range[1] - range[0] + 1;
+        }
+        return size;
+    }
+
+    private int addressAt(int index) {
+        for (int[] range : ranges) {
+            int length = range[1] - range[0] + 1;
+            if (index < length) {
+                return range[0] + index;
+            }
+            index -= length;
+        }
+        return -1;
+    }
+
+    /**
+     * Parses a comma separated list of hex addresses and address ranges, e.g. {@code 0101-01FF, FEFE}.
+     */
+    static List<int[]> parseRanges(String ranges) {
+        List<int[]> result = new ArrayList<>();
+        for (String range : ranges.split(",")) {
+            String[] bounds = range.trim().split("-");
+            if (bounds[0].isEmpty()) {
+                continue;
+            }
+            try {
+                int from = Integer.parseInt(bounds[0].trim(), 16);
+                int to = bounds.length > 1 ? Integer.parseInt(bounds[1].trim(), 16) : from;
+                // 0000 is used for address programming and FFFF for broadcasts
+                from = Math.max(from, 0x0001);
+                to = Math.min(to, 0xFFFE);
+                if (from <= to) {
+                    result.add(new int[] { from, to });
+                }
+            } catch (NumberFormatException e) {
+                LoggerFactory.getLogger(DooyaCurtainsDiscoveryService.class).warn("Invalid address range {}", range);
+            }
+        }
+        return result;
+    }
+}
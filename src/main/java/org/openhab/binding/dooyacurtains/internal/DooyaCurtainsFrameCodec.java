@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.util.Arrays;
+import java.util.HexFormat;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsFrameCodec} class encodes requests into bus frames. An instance owns a
+ * buffer which is reused for every frame, so encoding on the bus thread does not allocate.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsFrameCodec {
+
+    public static final int MAX_FRAME_LENGTH = 64;
+    private static final HexFormat HEX = HexFormat.ofDelimiter(" ").withUpperCase();
+
+    private final byte[] buffer = new byte[MAX_FRAME_LENGTH];
+
+    /**
+     * Copies the request into the buffer and appends its CRC.
+     *
+     * @return length of the frame in {@link #buffer()}
+     */
+    public int encode(byte[] request) {
+        System.arraycopy(request, 0, buffer, 0, request.length);
+        DooyaCurtainsCRC16Modbus.append(buffer, 0, request.length);
+        return request.length + 2;
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns a new frame consisting of the request and its CRC. Used for frames which are built once
+     * and sent many times.
+     */
+    public static byte[] frame(byte[] request) {
+        byte[] frame = Arrays.copyOf(request, request.length + 2);
+        DooyaCurtainsCRC16Modbus.append(frame, 0, request.length);
+        return frame;
+    }
+
+    /**
+     * Returns the length of the answer to a request. A read (function 0x01) is answered with the
+     * header, the data length byte, the requested number of registers and the CRC, while writes and
+     * control commands are echoed back.
+     */
+    public static int answerLength(byte[] request) {
+        if (request.length > 5 && request[3] == 0x01) {
+            return 5 + (request[5] & 0xFF) + 2;
+        }
+        return request.length + 2;
+    }
+
+    public static String toHex(byte[] data, int length) {
+        return HEX.formatHex(data, 0, Math.min(length, data.length));
+    }
+}
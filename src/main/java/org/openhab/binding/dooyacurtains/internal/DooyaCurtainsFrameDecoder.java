@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsFrameDecoder} class splits the byte stream received from the bus into frames.
+ * Bytes are collected in a ring buffer until a complete frame is available. The frame length is derived
+ * from the function code, and frames with a wrong CRC are skipped by searching for the next header byte,
+ * so noise and fragments of earlier answers do not shift the following frames.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsFrameDecoder {
+
+    private static final byte HEADER = 0x55;
+    private static final int CAPACITY = 256;
+    private static final int MASK = CAPACITY - 1;
+
+    private final byte[] ring = new byte[CAPACITY];
+    private int head;
+    private int tail;
+    private long crcErrors;
+    private long discardedBytes;
+
+    /**
+     * Appends received bytes. When the buffer overflows the oldest bytes are dropped.
+     */
+    public void feed(byte[] data, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (tail - head == CAPACITY) {
+                head++;
+                discardedBytes++;
+            }
+            ring[tail++ & MASK] = data[i];
+        }
+    }
+
+    /**
+     * Copies the next frame with a valid CRC into {@code frame}.
+     *
+     * @param frame buffer of at least {@link DooyaCurtainsFrameCodec#MAX_FRAME_LENGTH} bytes
+     * @return length of the frame or 0 if no complete frame is available yet
+     */
+    public int next(byte[] frame) {
+        while (true) {
+            while (tail - head > 0 && ring[head & MASK] != HEADER) {
+                head++;
+                discardedBytes++;
+            }
+            int length = frameLength();
+            if (length == 0) {
+                return 0;
+            }
+            // a length beyond the longest frame is noise, waiting for that many bytes would lose the real answer
+            if (length > 0 && length <= Math.min(frame.length, DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH)) {
+                if (tail - head < length) {
+                    return 0;
+                }
+                for (int i = 0; i < length; i++) {
+                    frame[i] = ring[(head + i) & MASK];
+                }
+                if (DooyaCurtainsCRC16Modbus.compute(frame, 0, length - 2) == ((frame[length - 2] & 0xFF)
+                        | (frame[length - 1] & 0xFF) << 8)) {
+                    head += length;
+                    return length;
+                }
+                crcErrors++;
+            }
+            // not a frame start, search for the next header byte
+            head++;
+            discardedBytes++;
+        }
+    }
+
+    /**
+     * Returns the length of the frame at the head of the buffer, 0 when more bytes are needed to tell
+     * and -1 when the bytes cannot start a frame.
+     */
+    private int frameLength() {
+        int available = tail - head;
+        if (available < 5) {
+            return 0;
+        }
+        switch (ring[(head + 3) & MASK]) {
+            case 0x01:
+                // read answer: header, data length, data
+                return 5 + (ring[(head + 4) & MASK] & 0xFF) + 2;
+            case 0x02:
+                // write echo: header, register, data length, data
+                return available < 6 ? 0 : 6 + (ring[(head + 5) & MASK] & 0xFF) + 2;
+            case 0x03:
+                // control echo, only the position command carries a value
+                return ring[(head + 4) & MASK] == 0x04 ? 8 : 7;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * Drops all buffered bytes.
+     */
+    public void reset() {
+        discardedBytes += tail - head;
+        head = tail;
+    }
+
+    public int size() {
+        return tail - head;
+    }
+
+    public long getCrcErrors() {
+        return crcErrors;
+    }
+
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+}
@@ -0,0 +1,142 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.dooyacurtains.internal.DooyaCurtainsTransaction.Priority;
+import org.openhab.core.library.types.PercentType;
+import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingStatus;
+import org.openhab.core.thing.ThingStatusDetail;
+import org.openhab.core.thing.binding.BaseThingHandler;
+import org.openhab.core.types.Command;
+import org.openhab.core.types.RefreshType;
+import org.openhab.core.types.State;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DooyaCurtainsGroupHandler} sends commands to the group or broadcast address of several
+ * motors, so that all of them receive the same frame and start moving at once. Motors do not answer
+ * group frames, so the member curtains are polled afterwards.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsGroupHandler extends BaseThingHandler {
+
+    private final Logger logger = LoggerFactory.getLogger(DooyaCurtainsGroupHandler.class);
+    private @Nullable DooyaCurtainsRS485BridgeHandler bridgeHandler;
+    private byte[] address = new byte[2];
+    private List<byte[]> members = List.of();
+
+    public DooyaCurtainsGroupHandler(Thing thing) {
+        super(thing);
+    }
+
+    @Override
+    public void initialize() {
+        DooyaCurtainsConfiguration config = getConfigAs(DooyaCurtainsConfiguration.class);
+        try {
+            address = HexFormat.of().parseHex(config.address);
+            List<byte[]> members = new ArrayList<>();
+            for (String member : config.members.split(",")) {
+                if (!member.isBlank()) {
+                    members.add(HexFormat.of().parseHex(member.trim()));
+                }
+            }
+            this.members = members;
+        } catch (IllegalArgumentException e) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, "Invalid address");
+            return;
+        }
+        if (address.length != 2) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, "Invalid address");
+            return;
+        }
+        Bridge bridge = getBridge();
+        if (bridge != null && bridge.getHandler() instanceof DooyaCurtainsRS485BridgeHandler handler) {
+            bridgeHandler = handler;
+            if (bridge.getStatus() == ThingStatus.ONLINE) {
+                updateStatus(ThingStatus.ONLINE);
+            } else {
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE);
+            }
+        } else {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE);
+        }
+    }
+
+    @Override
+    public void handleCommand(ChannelUID channelUID, Command command) {
+        DooyaCurtainsRS485BridgeHandler bridgeHandler = this.bridgeHandler;
+        if (command instanceof RefreshType || bridgeHandler == null) {
+            return;
+        }
+        byte[] request = null;
+        if (POSITION.equals(channelUID.getId()) && command instanceof PercentType percent) {
+            request = new byte[] { 0x55, address[0], address[1], 0x03, 0x04, (byte) percent.intValue() };
+        } else if (STATE.equals(channelUID.getId())) {
+            switch (command.toString()) {
+                case "OPEN":
+                    request = new byte[] { 0x55, address[0], address[1], 0x03, 0x01 };
+                    break;
+                case "CLOSE":
+                    request = new byte[] { 0x55, address[0], address[1], 0x03, 0x02 };
+                    break;
+                case "STOP":
+                    request = new byte[] { 0x55, address[0], address[1], 0x03, 0x03 };
+                    break;
+            }
+        }
+        if (request == null) {
+            logger.debug("Unsupported group command {} for channel {}", command, channelUID);
+            return;
+        }
+        logger.debug("Group {} command {}", HexFormat.of().formatHex(address), command);
+        DooyaCurtainsTransaction transaction = new DooyaCurtainsTransaction(null, null, request, Priority.COMMAND);
+        transaction.broadcast = true;
+        bridgeHandler.submit(transaction).thenRun(this::refreshMembers);
+        if (command instanceof State state) {
+            updateState(channelUID, state);
+        }
+    }
+
+    /**
+     * Lets every member curtain poll its registers quickly, as if it had received the command itself.
+     * Without configured members all curtains of the bridge are refreshed.
+     */
+    private void refreshMembers() {
+        Bridge bridge = getBridge();
+        if (bridge == null) {
+            return;
+        }
+        for (Thing thing : bridge.getThings()) {
+            if (thing.getHandler() instanceof DooyaCurtainsHandler curtain) {
+                if (members.isEmpty() || members.stream().anyMatch(member -> Arrays.equals(member, curtain.address))) {
+                    curtain.startFastPolling();
+                }
+            }
+        }
+    }
+}
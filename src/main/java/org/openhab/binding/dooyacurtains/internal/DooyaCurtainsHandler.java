@@ -12,29 +12,38 @@
  */
 package org.openhab.binding.dooyacurtains.internal;
 
-import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.INVERTED;
-import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.POSITION;
-import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.STATE;
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
 
 import java.util.HashMap;
 import java.util.HexFormat;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.dooyacurtains.internal.DooyaCurtainsTransaction.Priority;
 import org.openhab.core.library.types.PercentType;
+import org.openhab.core.library.types.StopMoveType;
 import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.types.UpDownType;
+import org.openhab.core.storage.Storage;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
+import org.openhab.core.thing.ThingStatusInfo;
+import org.openhab.core.thing.ThingUID;
 import org.openhab.core.thing.binding.BaseThingHandler;
 import org.openhab.core.types.Command;
 import org.openhab.core.types.RefreshType;
+import org.openhab.core.types.State;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -47,33 +56,85 @@ import org.slf4j.LoggerFactory;
 @NonNullByDefault
 public class DooyaCurtainsHandler extends BaseThingHandler {
 
+    private static final PercentType[] POSITIONS = new PercentType[101];
+    private static final StringType STATE_STOP = new StringType("STOP");
+    private static final StringType STATE_OPEN = new StringType("OPEN");
+    private static final StringType STATE_CLOSE = new StringType("CLOSE");
+    private static final StringType STATE_PROGRAM = new StringType("PROGRAM");
+    private static final StringType DIRECTION_DIRECT = new StringType("DIRECT");
+    private static final StringType DIRECTION_REVERSE = new StringType("REVERSE");
+
+    static {
+        for (int i = 0; i < POSITIONS.length; i++) {
+            POSITIONS[i] = new PercentType(i);
+        }
+    }
+
     private final Logger logger = LoggerFactory.getLogger(DooyaCurtainsHandler.class);
     @Nullable
     DooyaCurtainsRS485BridgeHandler bridgeHandler;
-    private @Nullable ScheduledFuture<?> pollingTask;
     byte[] address = new byte[2];
+    // position (0x02), direction (0x03) and state (0x05) are read with a single frame
+    private byte[] pollRequest = new byte[0];
+    private byte[] pollFrame = new byte[0];
+    // keep polling fast for a while after a motion command, until the motor reports its state
+    private static final long COMMAND_GRACE_NANOS = TimeUnit.SECONDS.toNanos(3);
+    private long fastPollingInterval = 300;
+    private long idlePollingInterval = 30000;
+    private volatile boolean moving;
+    // cleared on dispose, late answers of queued transactions must not restart polling or write the storage
+    private volatile boolean active;
+    private boolean pollingActive;
+    private volatile long fastPollingUntil;
+    // position updates between polls while a commanded motion runs
+    private static final long MIN_INTERPOLATION_STEP = TimeUnit.MILLISECONDS.toNanos(100);
+    private final DooyaCurtainsMotionModel motion = new DooyaCurtainsMotionModel();
+    private @Nullable ScheduledFuture<?> motionTask;
+    private long publishedTravelTime;
+    // position last read from the motor, replaces the estimates when a motion command fails
+    private volatile @Nullable State readPosition;
+    // last published state of every channel, REFRESH is answered from here
+    private final Map<String, State> stateCache = new ConcurrentHashMap<>();
+    private int positionDeadband;
+    private long refreshMaxAge;
+    private volatile long lastRead;
+    // motion command waiting for the end of the debounce window
+    private @Nullable ScheduledFuture<?> commandTask;
+    private long commandDebounce;
+    // static facts about the motor, kept over restarts
+    private final Storage<DooyaCurtainsDeviceInfo> deviceInfoStorage;
+    private volatile DooyaCurtainsDeviceInfo deviceInfo = new DooyaCurtainsDeviceInfo();
+    private String deviceInfoKey = "";
 
-    public DooyaCurtainsHandler(Thing thing) {
+    public DooyaCurtainsHandler(Thing thing, Storage<DooyaCurtainsDeviceInfo> deviceInfoStorage) {
         super(thing);
+        this.deviceInfoStorage = deviceInfoStorage;
     }
 
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
         // logger.debug("Command {}", command);
         if (command instanceof RefreshType) {
-            logger.debug("Refreshing Dooya curtains");
+            refresh(channelUID.getId());
         } else {
             DooyaCurtainsRS485BridgeHandler bridgeHandler = this.bridgeHandler;
             if (bridgeHandler != null) {
+                Channel channel = getThing().getChannel(channelUID.getId());
                 if (POSITION.equals(channelUID.getId())) {
                     logger.debug("Command Position");
 
-                    DooyaCurtainsPooler pooler = new DooyaCurtainsPooler();
-                    pooler.dooyaCurtainsHandler = this;
-                    pooler.channel = getThing().getChannel(channelUID.getId());
-                    pooler.request = new byte[] { 0x55, address[0], address[1], 0x03, 0x04,
-                            Byte.parseByte(command.toString()) };
-                    bridgeHandler.requestsList.add(pooler);
+                    if (command instanceof PercentType percent) {
+                        int position = Math.max(0, Math.min(100, percent.intValue()));
+                        sendMotion(channel,
+                                new byte[] { 0x55, address[0], address[1], 0x03, 0x04, (byte) position }, position);
+                    } else if (command instanceof UpDownType upDown) {
+                        sendMotion(channel, new byte[] { 0x55, address[0], address[1], 0x03,
+                                (byte) (upDown == UpDownType.UP ? 0x01 : 0x02) }, upDown == UpDownType.UP ? 0 : 100);
+                    } else if (command instanceof StopMoveType) {
+                        sendMotion(channel, new byte[] { 0x55, address[0], address[1], 0x03, 0x03 }, -1);
+                    } else {
+                        logger.debug("Unsupported position command {}", command);
+                    }
 
                     // int counter = 0;
                     // byte[] data = new byte[] { 0x55, address[0], address[1], 0x03, 0x04,
@@ -95,11 +156,7 @@ public class DooyaCurtainsHandler extends BaseThingHandler {
                     if (command.toString().equals("OPEN")) {
                         logger.debug("Command OPEN");
 
-                        DooyaCurtainsPooler pooler = new DooyaCurtainsPooler();
-                        pooler.dooyaCurtainsHandler = this;
-                        pooler.channel = getThing().getChannel(channelUID.getId());
-                        pooler.request = new byte[] { 0x55, address[0], address[1], 0x03, 0x01 };
-                        bridgeHandler.requestsList.add(pooler);
+                        sendMotion(channel, new byte[] { 0x55, address[0], address[1], 0x03, 0x01 }, 0);
 
                         // int counter = 0;
                         // byte[] data = new byte[] { 0x55, address[0], address[1], 0x03, 0x01 };
@@ -120,11 +177,7 @@ public class DooyaCurtainsHandler extends BaseThingHandler {
                     if (command.toString().equals("CLOSE")) {
                         logger.debug("Command CLOSE");
 
-                        DooyaCurtainsPooler pooler = new DooyaCurtainsPooler();
-                        pooler.dooyaCurtainsHandler = this;
-                        pooler.channel = getThing().getChannel(channelUID.getId());
-                        pooler.request = new byte[] { 0x55, address[0], address[1], 0x03, 0x02 };
-                        bridgeHandler.requestsList.add(pooler);
+                        sendMotion(channel, new byte[] { 0x55, address[0], address[1], 0x03, 0x02 }, 100);
 
                         // byte[] data = new byte[] { 0x55, address[0], address[1], 0x03, 0x02 };
                         // byte[] status = new byte[5];
@@ -145,11 +198,7 @@ public class DooyaCurtainsHandler extends BaseThingHandler {
                     if (command.toString().equals("STOP")) {
                         logger.debug("Command STOP");
 
-                        DooyaCurtainsPooler pooler = new DooyaCurtainsPooler();
-                        pooler.dooyaCurtainsHandler = this;
-                        pooler.channel = getThing().getChannel(channelUID.getId());
-                        pooler.request = new byte[] { 0x55, address[0], address[1], 0x03, 0x03 };
-                        bridgeHandler.requestsList.add(pooler);
+                        sendMotion(channel, new byte[] { 0x55, address[0], address[1], 0x03, 0x03 }, -1);
 
                         // byte[] data = new byte[] { 0x55, address[0], address[1], 0x03, 0x03 };
                         // byte[] status = new byte[5];
@@ -174,11 +223,8 @@ public class DooyaCurtainsHandler extends BaseThingHandler {
                         direction = 1;
                     }
 
-                    DooyaCurtainsPooler pooler = new DooyaCurtainsPooler();
-                    pooler.dooyaCurtainsHandler = this;
-                    pooler.channel = getThing().getChannel(channelUID.getId());
-                    pooler.request = new byte[] { 0x55, address[0], address[1], 0x02, 0x03, 0x01, (byte) direction };
-                    bridgeHandler.requestsList.add(pooler);
+                    byte[] request = new byte[] { 0x55, address[0], address[1], 0x02, 0x03, 0x01, (byte) direction };
+                    bridgeHandler.submit(new DooyaCurtainsTransaction(this, channel, request, Priority.COMMAND));
 
                     // int direction = 0;
                     // if (command.toString().equals("REVERSE")) {
@@ -206,130 +252,247 @@ public class DooyaCurtainsHandler extends BaseThingHandler {
 
     @Override
     public void initialize() {
-        // @Nullable DooyaCurtainsConfiguration config1 = getConfigAs(DooyaCurtainsConfiguration.class);
+        active = true;
+        DooyaCurtainsConfiguration config = getConfigAs(DooyaCurtainsConfiguration.class);
+        address = HexFormat.of().parseHex(config.address);
+        pollRequest = new byte[] { 0x55, address[0], address[1], 0x01, REGISTER_POSITION, 0x04 };
+        pollFrame = DooyaCurtainsFrameCodec.frame(pollRequest);
+        fastPollingInterval = config.fastPollingInterval;
+        idlePollingInterval = TimeUnit.SECONDS.toMillis(config.idlePollingInterval);
+        positionDeadband = config.positionDeadband;
+        refreshMaxAge = TimeUnit.SECONDS.toNanos(config.refreshMaxAge);
+        commandDebounce = config.commandDebounce;
+        stateCache.clear();
+        ThingUID bridgeUID = getThing().getBridgeUID();
+        deviceInfoKey = DooyaCurtainsDeviceInfo.key(bridgeUID != null ? bridgeUID.toString() : "", address);
+        DooyaCurtainsDeviceInfo cached = deviceInfoStorage.get(deviceInfoKey);
+        deviceInfo = cached != null ? cached : new DooyaCurtainsDeviceInfo();
         bridgeHandler = getBridgeHandler();
-        DooyaCurtainsRS485BridgeHandler bridgeHandler = this.bridgeHandler;
-        if (bridgeHandler != null) {
-            DooyaCurtainsConfiguration config = getConfigAs(DooyaCurtainsConfiguration.class);
-            address = HexFormat.of().parseHex(config.address);
-            byte[] data = new byte[] { 0x55, address[0], address[1], 0x01, (byte) 0xFE, 0x01 };
-            int reconnect = 0;
-            while (!bridgeHandler.getThing().getStatus().equals(ThingStatus.ONLINE)) {
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException ignored) {
-                }
-                if (reconnect == 10) {
-                    logger.error("Bridge is offline during 10 seconds");
-                    updateStatus(ThingStatus.UNKNOWN, ThingStatusDetail.BRIDGE_UNINITIALIZED,
-                            "Bridge is offline during 10 seconds");
-                    break;
-                }
-                reconnect++;
-            }
-            var status = bridgeHandler.send(data, 8);
-            Map<String, String> properties = new HashMap<>();
-            properties.put("Protocol version:", String.valueOf(status[5] & 0xFF));
-            updateProperties(properties);
-            if (status[0] == 0x55) {
-                updateStatus(ThingStatus.ONLINE);
-                pollingTask = scheduler.scheduleWithFixedDelay(this::poll, 0, 2, TimeUnit.SECONDS);
-            } else {
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR);
+        Bridge bridge = getBridge();
+        if (bridgeHandler != null && bridge != null && bridge.getStatus() == ThingStatus.ONLINE) {
+            start();
+        } else {
+            // started by bridgeStatusChanged() once the bridge is online
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE);
+        }
+    }
+
+    @Override
+    public void bridgeStatusChanged(ThingStatusInfo bridgeStatusInfo) {
+        if (bridgeStatusInfo.getStatus() == ThingStatus.ONLINE) {
+            bridgeHandler = getBridgeHandler();
+            if (bridgeHandler != null && getThing().getStatus() != ThingStatus.ONLINE) {
+                start();
             }
         } else {
+            stopPolling();
             updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.BRIDGE_OFFLINE);
         }
     }
 
-    private void poll() {
+    /**
+     * Goes online right away with the facts stored for the motor and confirms them with a probe once the
+     * bus is idle. The confirmation only updates the facts, the status follows the polls. A motor seen for
+     * the first time is probed before it goes online.
+     */
+    private void start() {
+        DooyaCurtainsDeviceInfo deviceInfo = this.deviceInfo;
+        if (deviceInfo.protocolVersion < 0) {
+            updateStatus(ThingStatus.UNKNOWN);
+            probe(Priority.POLL);
+            return;
+        }
+        logger.debug("Motor {} known from the last run", deviceInfoKey);
+        updateProperty("Protocol version:", String.valueOf(deviceInfo.protocolVersion));
+        if (deviceInfo.direction == 0 || deviceInfo.direction == 1) {
+            publish(INVERTED, deviceInfo.direction == 0 ? DIRECTION_DIRECT : DIRECTION_REVERSE);
+        }
+        updateStatus(ThingStatus.ONLINE);
+        startPolling();
+        probe(Priority.DISCOVERY);
+    }
+
+    /**
+     * Queues a read of the protocol version. The curtain goes online and starts polling when the motor
+     * answers, so initialization never waits for the bus.
+     */
+    private void probe(Priority priority) {
         DooyaCurtainsRS485BridgeHandler bridgeHandler = this.bridgeHandler;
-        if (bridgeHandler != null) {
-            for (Channel channel : getThing().getChannels()) {
-                if (isLinked(channel.getUID().getId())) {
-                    if (channel.getUID().getId().equals(POSITION)) {
-
-                        DooyaCurtainsPooler pooler = new DooyaCurtainsPooler();
-                        pooler.dooyaCurtainsHandler = this;
-                        pooler.channel = channel;
-                        pooler.request = new byte[] { 0x55, address[0], address[1], 0x01, 0x02, 0x01 };
-                        bridgeHandler.requestsList.add(pooler);
-
-                        // byte[] data = new byte[] { 0x55, address[0], address[1], 0x01, 0x02, 0x01 };
-                        // byte[] answer = bridgeHandler.send(data, 8);
-                        // if (address[0] == answer[1] && address[1] == answer[2]) {
-                        // if (!String.format("%02X", answer[5]).equals("FF")) {
-                        // logger.debug("Position is: {}", answer[5]);
-                        // try {
-                        // updateState(channel.getUID(), PercentType.valueOf(String.valueOf(answer[5])));
-                        // } catch (Exception ignored) {
-                        // logger.debug("Errror position is: {}", answer[5]);
-                        // }
-                        //
-                        // } else {
-                        // StringBuilder sbl = new StringBuilder(answer.length * 2);
-                        // for (byte b : answer)
-                        // sbl.append(String.format("%02X ", b));
-                        // logger.debug("Device does not set limits. Answer is: {}", sbl);
-                        // }
-                        // }
+        if (bridgeHandler == null) {
+            return;
+        }
+        byte[] data = new byte[] { 0x55, address[0], address[1], 0x01, (byte) 0xFE, 0x01 };
+        bridgeHandler.submit(new DooyaCurtainsTransaction(this, null, data, priority))
+                .whenComplete((status, error) -> {
+                    if (error instanceof CancellationException || !active) {
+                        // the bridge or this handler is going away, the probe says nothing about the motor
+                        return;
                     }
-                    if (channel.getUID().getId().equals(STATE)) {
-
-                        DooyaCurtainsPooler pooler = new DooyaCurtainsPooler();
-                        pooler.dooyaCurtainsHandler = this;
-                        pooler.channel = channel;
-                        pooler.request = new byte[] { 0x55, address[0], address[1], 0x01, 0x05, 0x01 };
-                        bridgeHandler.requestsList.add(pooler);
-
-                        // byte[] data = new byte[] { 0x55, address[0], address[1], 0x01, 0x05, 0x01 };
-                        // byte[] answer = bridgeHandler.send(data, 8);
-                        // if (address[0] == answer[1] && address[1] == answer[2]) {
-                        // if (!String.format("%02X", answer[5]).equals("FF") && answer[0] == 0x55) {
-                        // if (answer[5] == 0) {
-                        // logger.debug("Device state is: STOP");
-                        // updateState(channel.getUID(), StringType.valueOf("STOP"));
-                        // }
-                        // if (answer[5] == 1) {
-                        // logger.debug("Device state is: OPEN");
-                        // updateState(channel.getUID(), StringType.valueOf("OPEN"));
-                        // }
-                        // if (answer[5] == 2) {
-                        // logger.debug("Device state is: CLOSE");
-                        // updateState(channel.getUID(), StringType.valueOf("CLOSE"));
-                        // }
-                        // } else {
-                        // StringBuilder sbl = new StringBuilder(answer.length * 2);
-                        // for (byte b : answer)
-                        // sbl.append(String.format("%02X ", b));
-                        // logger.debug("Device state is: {}", sbl);
-                        // }
-                        // }
+                    if (status != null && status[0] == 0x55) {
+                        int version = status[5] & 0xFF;
+                        Map<String, String> properties = new HashMap<>();
+                        properties.put("Protocol version:", String.valueOf(version));
+                        updateProperties(properties);
+                        updateDeviceInfo(info -> info.protocolVersion = version);
+                        updateStatus(ThingStatus.ONLINE);
+                    } else if (priority == Priority.POLL && error == null
+                            && getThing().getStatus() != ThingStatus.ONLINE) {
+                        // a poll may have been answered meanwhile
+                        updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR);
                     }
-                    if (channel.getUID().getId().equals(INVERTED)) {
-                        DooyaCurtainsPooler pooler = new DooyaCurtainsPooler();
-                        pooler.dooyaCurtainsHandler = this;
-                        pooler.channel = channel;
-                        pooler.request = new byte[] { 0x55, address[0], address[1], 0x01, 0x03, 0x01 };
-                        bridgeHandler.requestsList.add(pooler);
-                        // byte[] data = new byte[] { 0x55, address[0], address[1], 0x01, 0x03, 0x01 };
-                        // byte[] answer = bridgeHandler.send(data, 8);
-                        // if (address[0] == answer[1] && address[1] == answer[2]) {
-                        // if (answer[5] == 0 && answer[0] == 0x55) {
-                        // logger.debug("Device state is: DIRECT");
-                        // updateState(channel.getUID(), StringType.valueOf("DIRECT"));
-                        // }
-                        // if (answer[5] == 1) {
-                        // logger.debug("Device state is: REVERSE");
-                        // updateState(channel.getUID(), StringType.valueOf("REVERSE"));
-                        // }
-                        // }
+                    if (priority == Priority.POLL) {
+                        // the first valid answer to a poll sets the curtain online again
+                        startPolling();
                     }
-                }
+                });
+    }
+
+    /**
+     * Adds the curtain to the poll schedule of the bridge, which spreads the polls of all curtains over
+     * time and polls this one first as soon as the bus has time.
+     */
+    private synchronized void startPolling() {
+        DooyaCurtainsRS485BridgeHandler bridgeHandler = this.bridgeHandler;
+        if (bridgeHandler != null && active) {
+            pollingActive = true;
+            bridgeHandler.startPolling(this, TimeUnit.MILLISECONDS.toNanos(idlePollingInterval));
+        }
+    }
+
+    /**
+     * Switches to the fast polling interval after a command which sets the motor in motion.
+     */
+    void startFastPolling() {
+        fastPollingUntil = System.nanoTime() + COMMAND_GRACE_NANOS;
+        schedulePoll(fastPollingInterval);
+    }
+
+    /**
+     * Sends a motion command once no newer one has arrived within the debounce window. A newer command
+     * also replaces one which already waits in the bridge queue, so a dragged slider moves the motor
+     * straight to the last position. A stop drops the waiting command and is sent at once.
+     *
+     * @param target position the motor moves to, -1 for stop
+     */
+    private synchronized void sendMotion(@Nullable Channel channel, byte[] request, int target) {
+        ScheduledFuture<?> commandTask = this.commandTask;
+        if (commandTask != null) {
+            commandTask.cancel(false);
+            this.commandTask = null;
+        }
+        if (commandDebounce > 0 && target >= 0) {
+            this.commandTask = scheduler.schedule(() -> submitMotion(channel, request, target), commandDebounce,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            submitMotion(channel, request, target);
+        }
+    }
+
+    private void submitMotion(@Nullable Channel channel, byte[] request, int target) {
+        DooyaCurtainsRS485BridgeHandler bridgeHandler = this.bridgeHandler;
+        if (bridgeHandler == null) {
+            return;
+        }
+        CompletableFuture<byte[]> future = bridgeHandler
+                .submit(new DooyaCurtainsTransaction(this, channel, request, Priority.COMMAND));
+        if (target < 0) {
+            motion.stop(System.nanoTime());
+            cancelMotionTask();
+            schedulePoll(fastPollingInterval);
+            return;
+        }
+        // the estimates only start once the motor has confirmed the command
+        future.whenComplete((answer, error) -> {
+            if (error instanceof CancellationException || !active) {
+                // replaced by a newer command or the bridge or this handler is going away
+                return;
+            }
+            if (error == null && DooyaCurtainsRS485BridgeHandler.isValidAnswer(request, answer)) {
+                startMotion(target);
+            } else {
+                motionFailed();
             }
+        });
+    }
+
+    /**
+     * Drops the estimates of a motion the motor has not confirmed and shows the last read position again.
+     */
+    private void motionFailed() {
+        motion.stop(System.nanoTime());
+        cancelMotionTask();
+        State position = readPosition;
+        if (position != null) {
+            publish(POSITION, position);
+        }
+        schedulePoll(fastPollingInterval);
+    }
+
+    /**
+     * Publishes interpolated positions while the motor travels to the target and reads the real position
+     * once at the predicted arrival. Falls back to fast polling until the travel time has been learned.
+     */
+    private void startMotion(int target) {
+        long now = System.nanoTime();
+        if (!motion.start(target, now)) {
+            startFastPolling();
+            return;
+        }
+        synchronized (this) {
+            cancelMotionTask();
+            if (!pollingActive) {
+                return;
+            }
+            long step = Math.max(MIN_INTERPOLATION_STEP, motion.getStepTime());
+            motionTask = scheduler.scheduleWithFixedDelay(this::publishEstimate, step, step, TimeUnit.NANOSECONDS);
+        }
+        schedulePoll(TimeUnit.NANOSECONDS.toMillis(motion.remaining(now)) + fastPollingInterval);
+    }
+
+    private void publishEstimate() {
+        long now = System.nanoTime();
+        int position = motion.estimate(now);
+        if (position >= 0 && position <= 100) {
+            publishPosition(position);
+        }
+        if (!motion.isMoving(now)) {
+            cancelMotionTask();
+        }
+    }
+
+    private synchronized void cancelMotionTask() {
+        ScheduledFuture<?> motionTask = this.motionTask;
+        if (motionTask != null) {
+            motionTask.cancel(false);
+            this.motionTask = null;
+        }
+    }
+
+    /**
+     * Replaces the next poll with one after the given delay in milliseconds.
+     */
+    private synchronized void schedulePoll(long delay) {
+        DooyaCurtainsRS485BridgeHandler bridgeHandler = this.bridgeHandler;
+        if (pollingActive && bridgeHandler != null) {
+            bridgeHandler.schedulePoll(this, delay);
         }
     }
 
+    /**
+     * Returns the polling interval in nanoseconds, the fast one while the curtain moves and the idle
+     * one otherwise.
+     */
+    long getPollInterval() {
+        return TimeUnit.MILLISECONDS.toNanos(
+                moving || System.nanoTime() - fastPollingUntil < 0 ? fastPollingInterval : idlePollingInterval);
+    }
+
+    DooyaCurtainsTransaction createPoll() {
+        DooyaCurtainsTransaction transaction = new DooyaCurtainsTransaction(this, null, pollRequest, Priority.POLL);
+        transaction.frame = pollFrame;
+        return transaction;
+    }
+
     private @Nullable DooyaCurtainsRS485BridgeHandler getBridgeHandler() {
         Bridge bridge = getBridge();
         if (bridge != null) {
@@ -340,57 +503,235 @@ public class DooyaCurtainsHandler extends BaseThingHandler {
         return null;
     }
 
+    private synchronized void stopPolling() {
+        pollingActive = false;
+        DooyaCurtainsRS485BridgeHandler bridgeHandler = this.bridgeHandler;
+        if (bridgeHandler != null) {
+            bridgeHandler.stopPolling(this);
+        }
+        ScheduledFuture<?> commandTask = this.commandTask;
+        if (commandTask != null) {
+            commandTask.cancel(false);
+            this.commandTask = null;
+        }
+        cancelMotionTask();
+    }
+
     @Override
     public void dispose() {
-        ScheduledFuture<?> refreshPollingJob = this.pollingTask;
-        if (refreshPollingJob != null && !refreshPollingJob.isCancelled()) {
-            refreshPollingJob.cancel(true);
-        }
-        this.pollingTask = null;
+        active = false;
+        stopPolling();
         super.dispose();
     }
 
-    public void response(byte[] data, @Nullable Channel channel) {
-        StringBuilder sbl = new StringBuilder(data.length * 2);
-        for (byte b : data)
-            sbl.append(String.format("%02X ", b));
-        logger.debug("Response {}, data {}", channel != null ? channel.getUID() : null, sbl);
-        if (channel != null && channel.getUID().getId().equals(POSITION)) {
-            if (!String.format("%02X", data[5]).equals("FF")) {
-                logger.debug("Position is: {}", data[5]);
-                try {
-                    updateState(channel.getUID(), PercentType.valueOf(String.valueOf(data[5])));
-                } catch (Exception ignored) {
-                    logger.debug("Errror position is: {}", data[5]);
+    @Override
+    public void handleRemoval() {
+        active = false;
+        deviceInfoStorage.remove(deviceInfoKey);
+        super.handleRemoval();
+    }
+
+    /**
+     * Applies a change to the stored motor facts. The storage is only written when a fact has changed and
+     * the handler has not been disposed or removed.
+     */
+    private synchronized void updateDeviceInfo(Consumer<DooyaCurtainsDeviceInfo> change) {
+        DooyaCurtainsDeviceInfo info = deviceInfo.copy();
+        change.accept(info);
+        if (active && !info.sameAs(deviceInfo)) {
+            deviceInfo = info;
+            deviceInfoStorage.put(deviceInfoKey, info);
+        }
+    }
+
+    /**
+     * Called by the bridge when the motor stopped answering. The bridge keeps probing it.
+     */
+    void communicationLost() {
+        moving = false;
+        updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, "Motor does not answer");
+    }
+
+    /**
+     * Called by the bridge when the motor answers again after {@link #communicationLost()}. Any other valid
+     * answer also sets the curtain online, see {@link #response(byte[], byte[], Channel)}.
+     */
+    void communicationRestored() {
+        updateStatus(ThingStatus.ONLINE);
+    }
+
+    /**
+     * Handles a valid answer by its function code: read answers carry register values, write echoes the
+     * written values and control echoes the command the motor has accepted.
+     */
+    public void response(byte[] request, byte[] data, @Nullable Channel channel) {
+        if (getThing().getStatus() != ThingStatus.ONLINE) {
+            updateStatus(ThingStatus.ONLINE);
+        }
+        if (logger.isDebugEnabled()) {
+            logger.debug("Response {}, data {}", channel != null ? channel.getUID() : null,
+                    DooyaCurtainsFrameCodec.toHex(data, data.length));
+        }
+        if (data[3] == 0x01 && request.length > 5) {
+            lastRead = System.nanoTime();
+            // a read answer holds the values of consecutive registers starting with the requested one
+            int first = request[4] & 0xFF;
+            int count = Math.min(data[4] & 0xFF, data.length - 7);
+            for (int i = 0; i < count; i++) {
+                register(first + i, data[5 + i]);
+            }
+            if (first <= REGISTER_POSITION && first + count > REGISTER_STATE) {
+                observeMotion(data[5 + REGISTER_POSITION - first], data[5 + REGISTER_STATE - first]);
+            }
+        } else if (data[3] == 0x02 && data.length > 8) {
+            // a write echo repeats the register, the data length and the written values
+            int first = data[4] & 0xFF;
+            int count = Math.min(data[5] & 0xFF, data.length - 8);
+            for (int i = 0; i < count; i++) {
+                register(first + i, data[6 + i]);
+            }
+        } else if (data[3] == 0x03) {
+            control(data[4], data.length > 7 ? data[5] : 0);
+        }
+    }
+
+    /**
+     * Publishes the state a confirmed control command sets the motor in. The position is left to the
+     * motion estimate and the following reads, as the motor only starts travelling to it.
+     */
+    private void control(byte code, byte target) {
+        switch (code) {
+            case 0x01:
+                moving = true;
+                publish(STATE, STATE_OPEN);
+                break;
+            case 0x02:
+                moving = true;
+                publish(STATE, STATE_CLOSE);
+                break;
+            case 0x03:
+                moving = false;
+                publish(STATE, STATE_STOP);
+                break;
+            case 0x04:
+                State position = stateCache.get(POSITION);
+                if (position instanceof PercentType percent && percent.intValue() != target) {
+                    moving = true;
+                    publish(STATE, target < percent.intValue() ? STATE_OPEN : STATE_CLOSE);
                 }
+                break;
+        }
+    }
+
+    /**
+     * Answers a REFRESH with the cached state. A real read is queued when nothing is cached yet or when
+     * the last reading is older than the configured maximum age.
+     */
+    private void refresh(String channelId) {
+        State state = stateCache.get(channelId);
+        if (state != null) {
+            updateState(channelId, state);
+        }
+        if (state == null || (refreshMaxAge > 0 && System.nanoTime() - lastRead > refreshMaxAge)) {
+            logger.debug("Refreshing {} from the bus", channelId);
+            schedulePoll(0);
+        }
+    }
+
+    /**
+     * Publishes a state only if it differs from the last published one.
+     */
+    private void publish(String channelId, State state) {
+        State previous = stateCache.put(channelId, state);
+        if (!state.equals(previous)) {
+            updateState(channelId, state);
+        }
+    }
+
+    /**
+     * Publishes a position if it differs from the last published one by at least the deadband. The end
+     * positions are always published, so a curtain never stays just short of open or closed.
+     */
+    private void publishPosition(int position) {
+        State previous = stateCache.get(POSITION);
+        if (previous instanceof PercentType percent && positionDeadband > 1 && position != 0 && position != 100
+                && Math.abs(percent.intValue() - position) < positionDeadband) {
+            return;
+        }
+        publish(POSITION, POSITIONS[position]);
+    }
+
+    private void observeMotion(byte position, byte state) {
+        if (position < 0 || position > 100) {
+            return;
+        }
+        long now = System.nanoTime();
+        if (motion.observe(position, state == 1 || state == 2, now)) {
+            long travelTime = TimeUnit.NANOSECONDS.toMillis(motion.getTravelTime());
+            // avoid a thing update for every small change of the estimate
+            if (Math.abs(travelTime - publishedTravelTime) >= 100) {
+                publishedTravelTime = travelTime;
+                updateProperty("Travel time", String.format("%.1f s", travelTime / 1000.0));
             }
         }
-        if (channel != null && channel.getUID().getId().equals(STATE)) {
-            if (data[5] == 0) {
+        if (!motion.isMoving(now)) {
+            cancelMotionTask();
+        }
+    }
+
+    private void register(int register, byte value) {
+        if (register == REGISTER_POSITION) {
+            // 0xFF means the limits are not set
+            if (value >= 0 && value <= 100) {
+                logger.debug("Position is: {}", value);
+                readPosition = POSITIONS[value];
+                publishPosition(value);
+                if (!deviceInfo.limitsSet) {
+                    updateDeviceInfo(info -> info.limitsSet = true);
+                }
+            } else if (value == (byte) 0xFF) {
+                if (deviceInfo.limitsSet) {
+                    updateDeviceInfo(info -> info.limitsSet = false);
+                }
+            } else {
+                logger.debug("Errror position is: {}", value);
+            }
+        }
+        if (register == REGISTER_STATE) {
+            if (value == 0) {
                 logger.debug("Device state is: STOP");
-                updateState(channel.getUID(), StringType.valueOf("STOP"));
+                publish(STATE, STATE_STOP);
             }
-            if (data[5] == 1) {
+            if (value == 1) {
                 logger.debug("Device state is: OPEN");
-                updateState(channel.getUID(), StringType.valueOf("OPEN"));
+                publish(STATE, STATE_OPEN);
             }
-            if (data[5] == 2) {
+            if (value == 2) {
                 logger.debug("Device state is: CLOSE");
-                updateState(channel.getUID(), StringType.valueOf("CLOSE"));
+                publish(STATE, STATE_CLOSE);
+            }
+            boolean wasMoving = moving;
+            moving = value == 1 || value == 2;
+            if (moving && !wasMoving) {
+                // started by a remote or a wall switch
+                schedulePoll(fastPollingInterval);
             }
-            if (data[5] == 3) {
+            if (value == 3) {
                 logger.debug("Device state is: PROGRAM");
-                updateState(channel.getUID(), StringType.valueOf("PROGRAM"));
+                publish(STATE, STATE_PROGRAM);
             }
         }
-        if (channel != null && channel.getUID().getId().equals(INVERTED)) {
-            if (data[5] == 0) {
+        if (register == REGISTER_DIRECTION && (value == 0 || value == 1) && deviceInfo.direction != value) {
+            updateDeviceInfo(info -> info.direction = value);
+        }
+        if (register == REGISTER_DIRECTION) {
+            if (value == 0) {
                 logger.debug("Device state is: DIRECT");
-                updateState(channel.getUID(), StringType.valueOf("DIRECT"));
+                publish(INVERTED, DIRECTION_DIRECT);
             }
-            if (data[5] == 1) {
+            if (value == 1) {
                 logger.debug("Device state is: REVERSE");
-                updateState(channel.getUID(), StringType.valueOf("REVERSE"));
+                publish(INVERTED, DIRECTION_REVERSE);
             }
         }
     }
@@ -19,6 +19,8 @@ import java.util.Set;
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
 import org.openhab.core.io.transport.serial.SerialPortManager;
+import org.openhab.core.storage.Storage;
+import org.openhab.core.storage.StorageService;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.Thing;
 import org.openhab.core.thing.ThingTypeUID;
@@ -39,12 +41,17 @@ import org.osgi.service.component.annotations.Reference;
 @Component(configurationPid = "binding.dooyacurtains", service = ThingHandlerFactory.class)
 public class DooyaCurtainsHandlerFactory extends BaseThingHandlerFactory {
 
-    private static final Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Set.of(RS485_BRIDGE, CURTAIN_THING);
+    private static final Set<ThingTypeUID> SUPPORTED_THING_TYPES_UIDS = Set.of(RS485_BRIDGE, TCP_BRIDGE,
+            CURTAIN_THING, GROUP_THING);
     private final SerialPortManager serialPortManager;
+    private final Storage<DooyaCurtainsDeviceInfo> deviceInfoStorage;
 
     @Activate
-    public DooyaCurtainsHandlerFactory(@Reference SerialPortManager serialPortManager) {
+    public DooyaCurtainsHandlerFactory(@Reference SerialPortManager serialPortManager,
+            @Reference StorageService storageService) {
         this.serialPortManager = serialPortManager;
+        this.deviceInfoStorage = storageService.getStorage(BINDING_ID + ".devices",
+                DooyaCurtainsDeviceInfo.class.getClassLoader());
     }
 
     @Override
@@ -56,11 +63,14 @@ public class DooyaCurtainsHandlerFactory extends BaseThingHandlerFactory {
     protected @Nullable ThingHandler createHandler(Thing thing) {
         ThingTypeUID thingTypeUID = thing.getThingTypeUID();
 
-        if (RS485_BRIDGE.equals(thingTypeUID)) {
+        if (RS485_BRIDGE.equals(thingTypeUID) || TCP_BRIDGE.equals(thingTypeUID)) {
             return new DooyaCurtainsRS485BridgeHandler((Bridge) thing, serialPortManager);
         }
         if (CURTAIN_THING.equals(thingTypeUID)) {
-            return new DooyaCurtainsHandler(thing);
+            return new DooyaCurtainsHandler(thing, deviceInfoStorage);
+        }
+        if (GROUP_THING.equals(thingTypeUID)) {
+            return new DooyaCurtainsGroupHandler(thing);
         }
 
         return null;
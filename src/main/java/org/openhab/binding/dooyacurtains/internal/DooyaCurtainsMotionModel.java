@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsMotionModel} class estimates the position of a curtain between two readings.
+ * The travel time per percent is learned from position readings taken while the motor moves. Once it is
+ * known, the position during a commanded motion is interpolated from the start position, the target and
+ * the elapsed time, and every real reading moves the start of the interpolation to the read position.
+ *
+ * All times are {@link System#nanoTime()} values.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsMotionModel {
+
+    // weight of a new measurement in the learned speed
+    private static final double SMOOTHING = 0.3;
+    // a measurement needs some travel, otherwise the 1 % resolution of the position dominates
+    private static final int MIN_LEARN_DISTANCE = 5;
+    private static final double MIN_NANOS_PER_PERCENT = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final double MAX_NANOS_PER_PERCENT = TimeUnit.SECONDS.toNanos(2);
+
+    private double nanosPerPercent;
+    private int position = -1;
+    // interpolated motion towards a target
+    private boolean moving;
+    private double origin;
+    private int target;
+    private long startTime;
+    // first reading of the motion currently observed by polling
+    private int anchorPosition = -1;
+    private long anchorTime;
+    private int anchorDirection;
+
+    /**
+     * Starts an interpolated motion towards the target.
+     *
+     * @return false if the travel time or the current position are not known yet
+     */
+    public synchronized boolean start(int target, long now) {
+        if (nanosPerPercent == 0 || position < 0) {
+            return false;
+        }
+        origin = moving ? exactEstimate(now) : position;
+        this.target = target;
+        startTime = now;
+        moving = true;
+        // a reading which finds the motor still on its way measures the speed again
+        anchorPosition = (int) Math.round(origin);
+        anchorTime = now;
+        anchorDirection = Integer.signum(target - anchorPosition);
+        return true;
+    }
+
+    public synchronized void stop(long now) {
+        if (moving) {
+            position = (int) Math.round(exactEstimate(now));
+            moving = false;
+        }
+    }
+
+    /**
+     * Records a position reading together with the reported motor state.
+     *
+     * @return true if the learned travel time has changed
+     */
+    public synchronized boolean observe(int position, boolean motorMoving, long now) {
+        boolean learned = false;
+        int direction = Integer.signum(position - anchorPosition);
+        if (!motorMoving || anchorPosition < 0 || (direction != 0 && anchorDirection != 0
+                && direction != anchorDirection)) {
+            anchorPosition = motorMoving ? position : -1;
+            anchorTime = now;
+            anchorDirection = 0;
+        } else {
+            anchorDirection = direction;
+            int distance = Math.abs(position - anchorPosition);
+            if (distance >= MIN_LEARN_DISTANCE) {
+                double sample = Math.max(MIN_NANOS_PER_PERCENT,
+                        Math.min(MAX_NANOS_PER_PERCENT, (double) (now - anchorTime) / distance));
+                nanosPerPercent = nanosPerPercent == 0 ? sample
+                        : nanosPerPercent + SMOOTHING * (sample - nanosPerPercent);
+                anchorPosition = position;
+                anchorTime = now;
+                learned = true;
+            }
+        }
+        this.position = position;
+        if (moving) {
+            if (motorMoving) {
+                // continue the interpolation from the real position
+                origin = position;
+                startTime = now;
+            } else {
+                moving = false;
+            }
+        }
+        return learned;
+    }
+
+    /**
+     * Returns the estimated position, or the last reading while no interpolated motion is running.
+     */
+    public synchronized int estimate(long now) {
+        return moving ? (int) Math.round(exactEstimate(now)) : position;
+    }
+
+    /**
+     * Returns the time until the interpolated motion reaches its target, 0 when no motion is running.
+     */
+    public synchronized long remaining(long now) {
+        if (!moving) {
+            return 0;
+        }
+        return Math.max(0, (long) (Math.abs(target - origin) * nanosPerPercent) - (now - startTime));
+    }
+
+    public synchronized boolean isMoving(long now) {
+        return moving && remaining(now) > 0;
+    }
+
+    /**
+     * Returns the learned time for a full travel from 0 to 100 % in nanoseconds, 0 if not learned yet.
+     */
+    public synchronized long getTravelTime() {
+        return (long) (nanosPerPercent * 100);
+    }
+
+    /**
+     * Returns the time for one percent of travel in nanoseconds, 0 if not learned yet.
+     */
+    public synchronized long getStepTime() {
+        return (long) nanosPerPercent;
+    }
+
+    private double exactEstimate(long now) {
+        double travelled = (now - startTime) / nanosPerPercent;
+        double distance = target - origin;
+        return origin + Math.signum(distance) * Math.min(travelled, Math.abs(distance));
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link DooyaCurtainsPollScheduler} class decides which curtain is polled next when the bus is idle.
+ * Every curtain has a deadline, and the curtain whose deadline has passed longest ago goes first, which
+ * serves curtains with the same interval in turn. Idle polls are handed out at the rate the configured
+ * intervals need, evenly spaced, so curtains which start together are spread over the interval instead
+ * of polling in bursts. Polls a curtain asked for, e.g. after a command, only wait for their deadline.
+ *
+ * The bus time of a poll is learned, and from it the shortest idle interval the bus can sustain for the
+ * current number of curtains. When the configured intervals need more than that, every curtain is polled
+ * less often by the same share rather than building up a backlog.
+ *
+ * All times are {@link System#nanoTime()} values in nanoseconds.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsPollScheduler {
+
+    // share of the bus time status polls may use, the rest is left for commands
+    public static final double MAX_POLL_UTILIZATION = 0.8;
+    private static final double GAIN = 0.1;
+
+    private static class Entry {
+        long due;
+        // polls the curtain asked for are not spaced out
+        boolean requested;
+        long idleInterval;
+    }
+
+    private final Map<DooyaCurtainsHandler, Entry> entries = new LinkedHashMap<>();
+    private long nextIdleSlot;
+    private double pollTime = -1;
+
+    public synchronized void add(DooyaCurtainsHandler handler, long idleInterval, long now) {
+        Entry entry = entries.computeIfAbsent(handler, h -> new Entry());
+        entry.idleInterval = idleInterval;
+        entry.due = now;
+    }
+
+    public synchronized void remove(DooyaCurtainsHandler handler) {
+        entries.remove(handler);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Replaces the deadline of a curtain with the given one.
+     *
+     * @return false if the curtain is not scheduled
+     */
+    public synchronized boolean request(DooyaCurtainsHandler handler, long due) {
+        Entry entry = entries.get(handler);
+        if (entry == null) {
+            return false;
+        }
+        entry.due = due;
+        entry.requested = true;
+        return true;
+    }
+
+    /**
+     * Takes the curtain to poll now and sets its next deadline one interval after the current one.
+     *
+     * @param interval returns the current polling interval of a curtain in nanoseconds
+     * @return the curtain or null if no poll is due
+     */
+    public synchronized @Nullable DooyaCurtainsHandler next(long now, ToLongFunction<DooyaCurtainsHandler> interval) {
+        DooyaCurtainsHandler next = null;
+        Entry nextEntry = null;
+        for (Map.Entry<DooyaCurtainsHandler, Entry> candidate : entries.entrySet()) {
+            Entry entry = candidate.getValue();
+            if (entry.due - now > 0 || (!entry.requested && nextIdleSlot - now > 0)) {
+                continue;
+            }
+            if (nextEntry == null || entry.due - nextEntry.due < 0) {
+                next = candidate.getKey();
+                nextEntry = entry;
+            }
+        }
+        if (next == null || nextEntry == null) {
+            return null;
+        }
+        long pollInterval = interval.applyAsLong(next);
+        if (!nextEntry.requested) {
+            nextIdleSlot = now + spacing();
+        }
+        // keep the phase of a curtain unless it is late by more than an interval
+        long due = (nextEntry.requested ? now : nextEntry.due) + pollInterval;
+        nextEntry.due = due - now < 0 ? now : due;
+        // a curtain polled fast while it moves is not spaced out either
+        nextEntry.requested = pollInterval < nextEntry.idleInterval;
+        return next;
+    }
+
+    /**
+     * Returns the time until the next poll is due, {@link Long#MAX_VALUE} if no curtain is scheduled.
+     */
+    public synchronized long timeUntilNext(long now) {
+        long next = Long.MAX_VALUE;
+        for (Entry entry : entries.values()) {
+            long due = entry.requested || entry.due - nextIdleSlot > 0 ? entry.due : nextIdleSlot;
+            next = Math.min(next, Math.max(0, due - now));
+        }
+        return next;
+    }
+
+    /**
+     * Records the bus time of a poll.
+     */
+    public synchronized void recordPoll(long busy) {
+        pollTime = pollTime < 0 ? busy : pollTime + GAIN * (busy - pollTime);
+    }
+
+    /**
+     * Returns the time between two idle polls which gives every curtain its configured interval, but
+     * never less than the bus can sustain.
+     */
+    private long spacing() {
+        double rate = 0;
+        for (Entry entry : entries.values()) {
+            rate += 1.0 / Math.max(entry.idleInterval, 1);
+        }
+        long spacing = rate > 0 ? (long) (1 / rate) : 0;
+        return pollTime > 0 ? Math.max(spacing, (long) (pollTime / MAX_POLL_UTILIZATION)) : spacing;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the shortest idle interval the bus can sustain for all scheduled curtains, -1 until the
+     * bus time of a poll has been measured.
+     */
+    public synchronized long getSustainableInterval() {
+        return pollTime > 0 ? (long) (entries.size() * pollTime / MAX_POLL_UTILIZATION) : -1;
+    }
+
+    /**
+     * Returns the share of the bus time the configured idle intervals need, -1 until the bus time of a
+     * poll has been measured.
+     */
+    public synchronized double getRequiredUtilization() {
+        if (pollTime <= 0) {
+            return -1;
+        }
+        double utilization = 0;
+        for (Entry entry : entries.values()) {
+            utilization += pollTime / Math.max(entry.idleInterval, 1);
+        }
+        return utilization;
+    }
+
+}
@@ -12,37 +12,44 @@
  */
 package org.openhab.binding.dooyacurtains.internal;
 
-import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.BINDING_ID;
-import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.PROGRAM_SWITCH;
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HexFormat;
-import java.util.Iterator;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.eclipse.jdt.annotation.NonNullByDefault;
 import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.OpenHAB;
 import org.openhab.core.config.core.Configuration;
-import org.openhab.core.io.transport.serial.PortInUseException;
-import org.openhab.core.io.transport.serial.SerialPort;
-import org.openhab.core.io.transport.serial.SerialPortEvent;
-import org.openhab.core.io.transport.serial.SerialPortEventListener;
-import org.openhab.core.io.transport.serial.SerialPortIdentifier;
 import org.openhab.core.io.transport.serial.SerialPortManager;
-import org.openhab.core.io.transport.serial.UnsupportedCommOperationException;
+import org.openhab.core.library.types.DecimalType;
 import org.openhab.core.library.types.OnOffType;
+import org.openhab.core.library.types.QuantityType;
+import org.openhab.core.library.types.StringType;
+import org.openhab.core.library.unit.MetricPrefix;
+import org.openhab.core.library.unit.Units;
 import org.openhab.core.thing.Bridge;
 import org.openhab.core.thing.Channel;
 import org.openhab.core.thing.ChannelUID;
 import org.openhab.core.thing.ThingStatus;
 import org.openhab.core.thing.ThingStatusDetail;
 import org.openhab.core.thing.binding.BaseBridgeHandler;
+import org.openhab.core.thing.binding.ThingHandlerService;
 import org.openhab.core.thing.binding.builder.ChannelBuilder;
 import org.openhab.core.thing.binding.builder.ThingBuilder;
 import org.openhab.core.thing.type.ChannelTypeUID;
@@ -57,15 +64,77 @@ import org.slf4j.LoggerFactory;
  * @author Petr Shatsillo - Initial contribution
  */
 @NonNullByDefault
-public class DooyaCurtainsRS485BridgeHandler extends BaseBridgeHandler implements SerialPortEventListener {
+public class DooyaCurtainsRS485BridgeHandler extends BaseBridgeHandler {
 
     private final Logger logger = LoggerFactory.getLogger(DooyaCurtainsRS485BridgeHandler.class);
+    private static final long RECONNECT_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+    // shortest time a motor needs to turn the bus around and start its answer
+    private static final long MINIMUM_TURNAROUND = TimeUnit.MILLISECONDS.toNanos(5);
+    // one start bit, eight data bits and one stop bit
+    private static final int BITS_PER_CHARACTER = 10;
     private final SerialPortManager serialPortManager;
-    private @Nullable SerialPort serialPort;
-    private @Nullable InputStream inputStream;
-    private @Nullable OutputStream outputStream;
-    private @Nullable ScheduledFuture<?> pollingTask;
-    public List<DooyaCurtainsPooler> requestsList = new ArrayList<>();
+    private @Nullable DooyaCurtainsTransport transport;
+    private long lastConnectAttempt;
+    private @Nullable ScheduledFuture<?> metricsTask;
+    private final PriorityBlockingQueue<DooyaCurtainsTransaction> transactions = new PriorityBlockingQueue<>();
+    // the only thread which writes to and reads from the transport
+    private @Nullable Thread busThread;
+    // guards the transport and the receive state, only taken on the bus thread
+    private final Object busLock = new Object();
+    // longer than a connection attempt, which an interrupt may not end
+    private static final long BUS_THREAD_STOP_TIMEOUT = 6000;
+    private final Map<Integer, DooyaCurtainsTransaction> pendingReads = new ConcurrentHashMap<>();
+    private final Map<Integer, DooyaCurtainsTransaction> pendingMotions = new ConcurrentHashMap<>();
+    private final AtomicLong mergedRequests = new AtomicLong();
+    private final AtomicLong droppedRequests = new AtomicLong();
+    private int maxQueueDepth = 100;
+    private int retries = 1;
+    private final Map<Integer, DooyaCurtainsCircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private int failureThreshold = 3;
+    private long minimumProbeInterval = TimeUnit.SECONDS.toNanos(5);
+    private long maximumProbeInterval = TimeUnit.SECONDS.toNanos(300);
+    private String discoveryRanges = "";
+    private int discoveryTimeout = 50;
+    private final DooyaCurtainsBusStatistics statistics = new DooyaCurtainsBusStatistics();
+    private String publishedMotorStatistics = "";
+    private final DooyaCurtainsFrameDecoder decoder = new DooyaCurtainsFrameDecoder();
+    private final byte[] readBuffer = new byte[DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH];
+    private final byte[] decodedFrame = new byte[DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH];
+    private final byte[] receiveBuffer = new byte[DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH];
+    private int receivedLength;
+    private boolean expecting;
+    private byte expectedAddressHigh;
+    private byte expectedAddressLow;
+    private int rejectedFrames;
+    // expected and received length of an answer which is not decoded
+    private int rawLength;
+    private int rawReceived;
+    private long responseTimeout = TimeUnit.MILLISECONDS.toNanos(200);
+    private final Map<Integer, DooyaCurtainsResponseTimer> responseTimers = new ConcurrentHashMap<>();
+    private long characterTime = TimeUnit.SECONDS.toNanos(BITS_PER_CHARACTER) / 9600;
+    private long frameGap = characterTime * 7 / 2;
+    private long lastBusActivity;
+    private final DooyaCurtainsFrameCodec codec = new DooyaCurtainsFrameCodec();
+    private volatile @Nullable DooyaCurtainsBusCapture capture;
+    // pause between two programming frames while no motor answers
+    private static final long PROGRAMMING_RETRY_INTERVAL = 200;
+    private static final int PROGRAMMING_ANSWER_LENGTH = 15;
+    private volatile boolean programming;
+    // transactions other than commands which came up while addresses were programmed
+    private final List<DooyaCurtainsTransaction> deferred = new ArrayList<>();
+    private List<Integer> programmingTargets = List.of();
+    private int programmingIndex;
+    private int programmedAddresses;
+    private final List<String> unprogrammedAddresses = new ArrayList<>();
+    private long programmingDeadline;
+    private long programmingTimeout = TimeUnit.SECONDS.toNanos(60);
+    private @Nullable ScheduledFuture<?> programmingTask;
+    private final DooyaCurtainsPollScheduler pollScheduler = new DooyaCurtainsPollScheduler();
+    // marker which only wakes the bus thread when the poll schedule has changed
+    private final DooyaCurtainsTransaction wakeUp = new DooyaCurtainsTransaction(null, null, new byte[0],
+            DooyaCurtainsTransaction.Priority.POLL);
+    private boolean pollOverload;
+    private String publishedPollSchedule = "";
 
     public DooyaCurtainsRS485BridgeHandler(Bridge thing, SerialPortManager serialPortManager) {
         super(thing);
@@ -75,240 +144,823 @@ public class DooyaCurtainsRS485BridgeHandler extends BaseBridgeHandler implement
     @Override
     public void initialize() {
         DooyaCurtainsConfiguration config = getConfigAs(DooyaCurtainsConfiguration.class);
-        if (config.serialPort.isEmpty()) {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.OFFLINE.CONFIGURATION_ERROR, "Port must be set!");
+        responseTimeout = TimeUnit.MILLISECONDS.toNanos(config.responseTimeout);
+        responseTimers.clear();
+        characterTime = TimeUnit.SECONDS.toNanos(BITS_PER_CHARACTER) / Math.max(config.baudRate, 1200);
+        // the silent interval which marks the end of a frame, 3.5 character times as on Modbus RTU
+        frameGap = characterTime * 7 / 2;
+        maxQueueDepth = config.maxQueueDepth;
+        retries = config.retries;
+        failureThreshold = config.failureThreshold;
+        minimumProbeInterval = TimeUnit.SECONDS.toNanos(config.minimumProbeInterval);
+        maximumProbeInterval = TimeUnit.SECONDS.toNanos(config.maximumProbeInterval);
+        breakers.clear();
+        discoveryRanges = config.discoveryRanges;
+        discoveryTimeout = config.discoveryTimeout;
+        programmingTimeout = TimeUnit.SECONDS.toNanos(config.programmingTimeout);
+        transport = createTransport(config);
+        if (transport == null) {
             return;
-        } else {
-            SerialPortIdentifier portId = serialPortManager.getIdentifier(config.serialPort);
-            if (portId == null) {
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.OFFLINE.CONFIGURATION_ERROR,
-                        "Port " + config.serialPort + " is unknown!");
-                serialPort = null;
-            } else {
-                updateStatus(ThingStatus.UNKNOWN);
-
-                List<Channel> channelList = new ArrayList<>();
-                List<Channel> existingChannelList = new LinkedList<>(thing.getChannels());
-                Configuration channelConfiguration = new Configuration();
-                channelConfiguration.put("Address", "FEFE");
-                ChannelUID programAddressUID = new ChannelUID(thing.getUID(), PROGRAM_SWITCH);
-                Channel programAddress = ChannelBuilder.create(programAddressUID)
-                        .withType(new ChannelTypeUID(BINDING_ID, PROGRAM_SWITCH))
-                        .withConfiguration(channelConfiguration).build();
-
-                if (existingChannelList.stream().anyMatch(cn -> cn.getUID().equals(programAddress.getUID()))) {
-                    Channel foundedChannel = existingChannelList.stream()
-                            .filter(cn -> cn.getUID().equals(programAddress.getUID())).findFirst().get();
-                    channelList.add(foundedChannel);
-                    existingChannelList.remove(foundedChannel);
-                } else {
-                    channelList.add(programAddress);
-                }
+        }
+        if (config.capture) {
+            Path file = Path.of(OpenHAB.getUserDataFolder(), BINDING_ID,
+                    getThing().getUID().getAsString().replace(':', '_') + ".capture");
+            try {
+                capture = new DooyaCurtainsBusCapture(file, config.captureFileSize * 1024L * 1024L,
+                        config.captureFiles);
+                logger.info("Capturing bus traffic to {}", file);
+            } catch (IOException e) {
+                logger.warn("Cannot capture bus traffic to {}: {}", file, e.getMessage());
+            }
+        }
+        updateStatus(ThingStatus.UNKNOWN);
 
-                ThingBuilder thingBuilder = editThing();
-                thingBuilder.withChannels(channelList);
-                updateThing(thingBuilder.build());
-                updateStatus(ThingStatus.ONLINE);
-                updateState(programAddress.getUID().getId(), OnOffType.OFF);
+        List<Channel> channelList = new ArrayList<>();
+        List<Channel> existingChannelList = new LinkedList<>(thing.getChannels());
+        Configuration channelConfiguration = new Configuration();
+        channelConfiguration.put("Address", "FEFE");
+        ChannelUID programAddressUID = new ChannelUID(thing.getUID(), PROGRAM_SWITCH);
+        Channel programAddress = ChannelBuilder.create(programAddressUID)
+                .withType(new ChannelTypeUID(BINDING_ID, PROGRAM_SWITCH)).withConfiguration(channelConfiguration)
+                .build();
+        addChannel(channelList, existingChannelList, programAddress);
+        addChannel(channelList, existingChannelList,
+                ChannelBuilder.create(new ChannelUID(thing.getUID(), PROGRAM_STATUS))
+                        .withType(new ChannelTypeUID(BINDING_ID, PROGRAM_STATUS)).build());
+        for (String metric : List.of(TRANSACTION_RATE, LATENCY_P50, LATENCY_P95, LATENCY_P99, QUEUE_DEPTH,
+                QUEUE_WAIT, BUS_UTILIZATION, TIMEOUTS, ERRORS, RETRIES, MERGED_REQUESTS, DROPPED_REQUESTS,
+                MOTOR_STATISTICS, POLL_SCHEDULE)) {
+            addChannel(channelList, existingChannelList, ChannelBuilder
+                    .create(new ChannelUID(thing.getUID(), metric)).withType(new ChannelTypeUID(BINDING_ID, metric))
+                    .build());
+        }
 
+        // the channels only change after an update of the binding, avoid a thing update on every start
+        if (!channelList.stream().map(Channel::getUID).toList()
+                .equals(thing.getChannels().stream().map(Channel::getUID).toList())) {
+            ThingBuilder thingBuilder = editThing();
+            thingBuilder.withChannels(channelList);
+            updateThing(thingBuilder.build());
+        }
+        updateState(programAddress.getUID().getId(), OnOffType.OFF);
+
+        startBusThread();
+        metricsTask = scheduler.scheduleWithFixedDelay(this::publishStatistics, config.metricsInterval,
+                config.metricsInterval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates the transport for the bridge type: a local serial port for the RS485 bridge and a TCP
+     * connection to an Ethernet gateway for the TCP bridge.
+     *
+     * @return the transport or null if the configuration is incomplete
+     */
+    private @Nullable DooyaCurtainsTransport createTransport(DooyaCurtainsConfiguration config) {
+        if (TCP_BRIDGE.equals(getThing().getThingTypeUID())) {
+            if (config.host.isEmpty() || config.port <= 0) {
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, "Host and port must be set!");
+                return null;
             }
+            return new DooyaCurtainsTcpTransport(config.host, config.port);
+        }
+        if (config.serialPort.isEmpty()) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR, "Port must be set!");
+            return null;
+        }
+        if (serialPortManager.getIdentifier(config.serialPort) == null) {
+            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.CONFIGURATION_ERROR,
+                    "Port " + config.serialPort + " is unknown!");
+            return null;
+        }
+        return new DooyaCurtainsSerialTransport(serialPortManager, config.serialPort, getThing().getUID().toString(),
+                config.baudRate);
+    }
 
+    private void addChannel(List<Channel> channelList, List<Channel> existingChannelList, Channel channel) {
+        if (existingChannelList.stream().anyMatch(cn -> cn.getUID().equals(channel.getUID()))) {
+            Channel foundedChannel = existingChannelList.stream().filter(cn -> cn.getUID().equals(channel.getUID()))
+                    .findFirst().get();
+            channelList.add(foundedChannel);
+            existingChannelList.remove(foundedChannel);
+        } else {
+            channelList.add(channel);
         }
-        scheduler.execute(this::connect);
-        pollingTask = scheduler.scheduleWithFixedDelay(this::poll, 0, 500, TimeUnit.MILLISECONDS);
     }
 
-    private void poll() {
-        Iterator<DooyaCurtainsPooler> iterator = requestsList.iterator();
-        try {
-            while (iterator.hasNext()) {
-                DooyaCurtainsPooler dooyaCurtainsPooler = iterator.next();
-                DooyaCurtainsHandler handler = dooyaCurtainsPooler.dooyaCurtainsHandler;
-                if ((handler != null) && (dooyaCurtainsPooler.channel != null)) {
-                    byte[] answer = send(dooyaCurtainsPooler.request, dooyaCurtainsPooler.request.length + 2);
-                    if (answer[0] == 0x55) {
-                        handler.response(answer, dooyaCurtainsPooler.channel);
-                    }
-                }
-                iterator.remove();
-                // Thread.sleep(100);
+    /**
+     * Queues a transaction for the bus. User commands are sent right away, ahead of any waiting
+     * status polls. A read for a register which is already waiting in the queue is merged with the
+     * waiting one, and status polls are dropped while the queue is full. Status polls of a motor
+     * which stopped answering are only let through as occasional probes. A motion command cancels
+     * the one for the same address which has not been sent yet.
+     *
+     * @return future completed with the answer once the transaction has been executed
+     */
+    public CompletableFuture<byte[]> submit(DooyaCurtainsTransaction transaction) {
+        if (transaction.priority == DooyaCurtainsTransaction.Priority.POLL && transaction.handler != null
+                && !breaker(address(transaction.request)).allowPoll(System.nanoTime())) {
+            transaction.future.cancel(false);
+            return transaction.future;
+        }
+        if (transaction.key >= 0) {
+            DooyaCurtainsTransaction pending = pendingReads.putIfAbsent(transaction.key, transaction);
+            if (pending != null) {
+                mergedRequests.incrementAndGet();
+                return pending.future;
+            }
+        }
+        if (transaction.priority != DooyaCurtainsTransaction.Priority.COMMAND && transactions.size() >= maxQueueDepth) {
+            pendingReads.remove(transaction.key, transaction);
+            droppedRequests.incrementAndGet();
+            logger.trace("Queue is full, dropping {} request", transaction.priority);
+            transaction.future.cancel(false);
+            return transaction.future;
+        }
+        if (transaction.motion) {
+            DooyaCurtainsTransaction superseded = pendingMotions.put(address(transaction.request), transaction);
+            if (superseded != null && transactions.remove(superseded)) {
+                logger.trace("Replacing unsent command {}",
+                        DooyaCurtainsFrameCodec.toHex(superseded.request, superseded.request.length));
+                superseded.future.cancel(false);
             }
-        } catch (Exception e) {
-            logger.error("Polling error {}", e.getMessage());
         }
+        transactions.add(transaction);
+        return transaction.future;
     }
 
-    private synchronized void connect() {
-        DooyaCurtainsConfiguration config = getConfigAs(DooyaCurtainsConfiguration.class);
-        SerialPortIdentifier portId = serialPortManager.getIdentifier(config.serialPort);
-        if (portId == null) {
-            updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.OFFLINE.CONFIGURATION_ERROR,
-                    "Port " + config.serialPort + " is unknown!");
-            serialPort = null;
-            disconnect();
-        } else if (!isConnected()) {
+    /**
+     * Starts the bus thread, which opens the transport and then executes the queued transactions
+     * one after the other, reconnecting when the connection was lost. A virtual thread is used when
+     * the runtime supports it.
+     */
+    synchronized void startBusThread() {
+        if (busThread != null) {
+            return;
+        }
+        Runnable task = () -> {
+            connect();
             try {
-                SerialPort serial = portId.open(getThing().getUID().toString(), 2000);
-                serial.setSerialPortParams(9600, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
-                try {
-                    InputStream inputStream = this.inputStream;
-                    if (inputStream != null) {
-                        inputStream.close();
+                while (!Thread.currentThread().isInterrupted()) {
+                    // commands and queued polls go first, scheduled polls use the bus before the address scan
+                    boolean polling = !programming && isConnected();
+                    long wait = polling ? Math.min(RECONNECT_INTERVAL, pollScheduler.timeUntilNext(System.nanoTime()))
+                            : RECONNECT_INTERVAL;
+                    DooyaCurtainsTransaction transaction = transactions.poll(wait, TimeUnit.NANOSECONDS);
+                    if (!isConnected() && System.nanoTime() - lastConnectAttempt >= RECONNECT_INTERVAL) {
+                        connect();
                     }
-                } catch (IOException e) {
-                    inputStream = null;
-                }
-                try {
-                    OutputStream outputStream = this.outputStream;
-                    if (outputStream != null) {
-                        outputStream.close();
+                    if (transaction == wakeUp) {
+                        transaction = null;
+                    }
+                    if (polling && (transaction == null
+                            || (transaction.priority == DooyaCurtainsTransaction.Priority.DISCOVERY
+                                    && pollScheduler.timeUntilNext(System.nanoTime()) == 0))) {
+                        // due curtain polls go ahead of the address scan, which queues its probes back to back
+                        DooyaCurtainsTransaction poll = scheduledPoll();
+                        if (poll != null) {
+                            if (transaction != null) {
+                                transactions.add(transaction);
+                            }
+                            transaction = poll;
+                        }
+                    }
+                    if (transaction != null) {
+                        synchronized (deferred) {
+                            if (programming && transaction.priority != DooyaCurtainsTransaction.Priority.COMMAND) {
+                                deferred.add(transaction);
+                                continue;
+                            }
+                        }
+                        long start = System.nanoTime();
+                        execute(transaction);
+                        if (transaction.priority == DooyaCurtainsTransaction.Priority.POLL) {
+                            pollScheduler.recordPoll(System.nanoTime() - start);
+                        }
                     }
-                } catch (IOException e) {
-                    outputStream = null;
                 }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            logger.debug("Bus thread stopped");
+        };
+        String name = "OH-binding-" + getThing().getUID() + "-bus";
+        Thread thread;
+        try {
+            // virtual threads are available from Java 21, while the binding is built for Java 17
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class).invoke(builder, name);
+            thread = (Thread) builderClass.getMethod("unstarted", Runnable.class).invoke(builder, task);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            thread = new Thread(task, name);
+            thread.setDaemon(true);
+        }
+        busThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Takes the poll of the curtain whose turn it is from the poll schedule.
+     */
+    private @Nullable DooyaCurtainsTransaction scheduledPoll() {
+        long now = System.nanoTime();
+        DooyaCurtainsHandler handler = pollScheduler.next(now, DooyaCurtainsHandler::getPollInterval);
+        if (handler == null || !breaker(address(handler.address)).allowPoll(now)) {
+            return null;
+        }
+        return handler.createPoll();
+    }
 
-                inputStream = serial.getInputStream();
-                outputStream = serial.getOutputStream();
-                serialPort = serial;
+    /**
+     * Adds a curtain to the poll schedule. Its first poll follows as soon as the bus has time.
+     *
+     * @param idleInterval polling interval while the curtain does not move in nanoseconds
+     */
+    void startPolling(DooyaCurtainsHandler handler, long idleInterval) {
+        pollScheduler.add(handler, idleInterval, System.nanoTime());
+        wakeUpBus();
+    }
 
-                updateStatus(ThingStatus.ONLINE);
+    void stopPolling(DooyaCurtainsHandler handler) {
+        pollScheduler.remove(handler);
+    }
 
-            } catch (final IOException ex) {
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.OFFLINE.COMMUNICATION_ERROR, "I/O error!");
-                logger.error("{}", ex.getMessage());
-            } catch (PortInUseException e) {
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.OFFLINE.COMMUNICATION_ERROR, "Port is in use!");
-                logger.error("{}", e.getMessage());
-            } catch (UnsupportedCommOperationException e) {
-                logger.error("{}", e.getMessage());
-                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.OFFLINE.COMMUNICATION_ERROR, e.getMessage());
-            }
+    /**
+     * Moves the next poll of a curtain to the given delay from now.
+     */
+    void schedulePoll(DooyaCurtainsHandler handler, long delay) {
+        if (pollScheduler.request(handler, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay))) {
+            wakeUpBus();
         }
     }
 
-    private boolean isConnected() {
-        return serialPort != null && inputStream != null && outputStream != null;
-    }
-
-    public byte[] send(byte[] data, int answerLenght) {
-        DooyaCurtainsCRC16Modbus crc = new DooyaCurtainsCRC16Modbus();
-        for (int d : data) {
-            crc.update(d);
-        }
-        byte[] byteStr = new byte[2];
-        byteStr[0] = (byte) ((crc.getValue() & 0x000000ff));
-        byteStr[1] = (byte) ((crc.getValue() & 0x0000ff00) >>> 8);
-        byte[] reqestString = new byte[data.length + 2];
-        System.arraycopy(data, 0, reqestString, 0, data.length);
-        reqestString[reqestString.length - 2] = byteStr[0];
-        reqestString[reqestString.length - 1] = byteStr[1];
-        StringBuilder sb = new StringBuilder(reqestString.length * 2);
-        for (byte b : reqestString)
-            sb.append(String.format("%02X ", b));
-        logger.debug("   send: {}", sb);
+    private void wakeUpBus() {
+        if (!transactions.contains(wakeUp)) {
+            transactions.add(wakeUp);
+        }
+    }
 
+    /**
+     * Stops the bus thread and waits until it has left the transport, so it can be closed safely.
+     */
+    private void stopBusThread() {
+        Thread busThread;
+        synchronized (this) {
+            busThread = this.busThread;
+            this.busThread = null;
+        }
+        if (busThread == null || busThread == Thread.currentThread()) {
+            return;
+        }
+        busThread.interrupt();
         try {
-            OutputStream out = outputStream;
-            if (out != null) {
-                out.write(reqestString);
-                out.flush();
-                Thread.sleep(200);
+            busThread.join(BUS_THREAD_STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (busThread.isAlive()) {
+            logger.warn("Bus thread did not stop within {} ms", BUS_THREAD_STOP_TIMEOUT);
+        }
+    }
+
+    /**
+     * Publishes the bus figures of the last window to the metric channels and the per address
+     * counters to the bridge properties.
+     */
+    private void publishStatistics() {
+        DooyaCurtainsBusStatistics.Snapshot snapshot = statistics.snapshot();
+        updateState(TRANSACTION_RATE, new DecimalType(snapshot.transactionRate));
+        updateState(LATENCY_P50, new QuantityType<>(snapshot.latencyP50, MetricPrefix.MILLI(Units.SECOND)));
+        updateState(LATENCY_P95, new QuantityType<>(snapshot.latencyP95, MetricPrefix.MILLI(Units.SECOND)));
+        updateState(LATENCY_P99, new QuantityType<>(snapshot.latencyP99, MetricPrefix.MILLI(Units.SECOND)));
+        updateState(QUEUE_DEPTH, new DecimalType(transactions.size()));
+        updateState(QUEUE_WAIT, new QuantityType<>(snapshot.queueWait, MetricPrefix.MILLI(Units.SECOND)));
+        updateState(BUS_UTILIZATION, new QuantityType<>(snapshot.busUtilization, Units.PERCENT));
+        updateState(TIMEOUTS, new DecimalType(snapshot.timeouts));
+        updateState(ERRORS, new DecimalType(snapshot.errors));
+        updateState(RETRIES, new DecimalType(snapshot.retries));
+        updateState(MERGED_REQUESTS, new DecimalType(mergedRequests.get()));
+        updateState(DROPPED_REQUESTS, new DecimalType(droppedRequests.get()));
+        DooyaCurtainsBusCapture capture = this.capture;
+        if (capture != null) {
+            capture.flush();
+        }
+        publishPollSchedule();
+
+        StringBuilder motorStatistics = new StringBuilder();
+        new TreeMap<>(statistics.getAddressCounters()).forEach((address, counters) -> {
+            DooyaCurtainsResponseTimer timer = responseTimers.get(address);
+            long responseTime = timer != null ? timer.getResponseTime() : -1;
+            if (motorStatistics.length() > 0) {
+                motorStatistics.append('\n');
+            }
+            motorStatistics.append(String.format("%04X: ", address)).append(counters);
+            if (responseTime >= 0) {
+                motorStatistics.append(", response=").append(TimeUnit.NANOSECONDS.toMillis(responseTime))
+                        .append(" ms");
             }
-        } catch (IOException | InterruptedException ignored) {
+        });
+        String published = motorStatistics.toString();
+        if (!published.equals(publishedMotorStatistics)) {
+            publishedMotorStatistics = published;
+            updateState(MOTOR_STATISTICS, new StringType(published));
+        }
+    }
 
+    /**
+     * Reports how much of the bus the configured polling intervals need and warns once when the bus
+     * cannot keep up with them, in which case every curtain is polled less often.
+     */
+    private void publishPollSchedule() {
+        long sustainableInterval = pollScheduler.getSustainableInterval();
+        double utilization = pollScheduler.getRequiredUtilization();
+        if (sustainableInterval < 0 || utilization < 0) {
+            return;
+        }
+        boolean overload = utilization > DooyaCurtainsPollScheduler.MAX_POLL_UTILIZATION;
+        if (overload != pollOverload) {
+            pollOverload = overload;
+            if (overload) {
+                logger.warn("The polling intervals of {} curtains need {} % of the bus, polls are stretched to about "
+                        + "{} s", pollScheduler.size(), Math.round(utilization * 100),
+                        String.format("%.1f", sustainableInterval / 1e9));
+            } else {
+                logger.info("The bus keeps up with the polling intervals again");
+            }
+        }
+        String schedule = String.format("%d curtains, shortest idle interval %.1f s, %d %% of the bus needed",
+                pollScheduler.size(), sustainableInterval / 1e9, Math.round(utilization * 100));
+        if (!schedule.equals(publishedPollSchedule)) {
+            publishedPollSchedule = schedule;
+            updateState(POLL_SCHEDULE, new StringType(schedule));
         }
+    }
 
-        byte[] frame = new byte[answerLenght];
-        InputStream in = inputStream;
-        if (in != null) {
-            try {
-                while (in.available() > 0) {
-                    var result = in.read(frame);
-                    logger.trace("response {}", result);
+    @Override
+    public Collection<Class<? extends ThingHandlerService>> getServices() {
+        return Set.of(DooyaCurtainsDiscoveryService.class);
+    }
+
+    String getDiscoveryRanges() {
+        return discoveryRanges;
+    }
+
+    int getDiscoveryTimeout() {
+        return discoveryTimeout;
+    }
+
+    /**
+     * Returns the address at which an interrupted address scan continues, -1 to start from the beginning.
+     */
+    int getDiscoveryProgress() {
+        String progress = getThing().getProperties().get(DISCOVERY_PROGRESS);
+        try {
+            return progress != null ? Integer.parseInt(progress, 16) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    void setDiscoveryProgress(int address) {
+        updateProperty(DISCOVERY_PROGRESS, address >= 0 ? String.format("%04X", address) : null);
+    }
+
+    public int getQueueDepth() {
+        return transactions.size();
+    }
+
+    public long getMergedRequests() {
+        return mergedRequests.get();
+    }
+
+    public long getDroppedRequests() {
+        return droppedRequests.get();
+    }
+
+    private void execute(DooyaCurtainsTransaction transaction) {
+        if (transaction.key >= 0) {
+            // a read submitted from now on needs a fresh frame
+            pendingReads.remove(transaction.key, transaction);
+        }
+        if (transaction.motion) {
+            pendingMotions.remove(address(transaction.request), transaction);
+        }
+        statistics.recordQueueWait(System.nanoTime() - transaction.created);
+        try {
+            byte[] frame = transaction.frame;
+            boolean raw = transaction.rawAnswerLength > 0;
+            int answerLength = transaction.broadcast ? 0
+                    : raw ? transaction.rawAnswerLength : DooyaCurtainsFrameCodec.answerLength(transaction.request);
+            byte[] answer = frame != null ? transmit(frame, frame.length, answerLength, raw, transaction.timeout)
+                    : transmit(codec.buffer(), codec.encode(transaction.request), answerLength, raw,
+                            transaction.timeout);
+            if (transaction.broadcast) {
+                transaction.future.complete(answer);
+                return;
+            }
+            // user commands are repeated when the motor did not answer, status polls just wait for the next cycle.
+            // Raw answers are judged by their own handler, which also decides about repeats.
+            for (int retry = 0; transaction.priority == DooyaCurtainsTransaction.Priority.COMMAND && !raw
+                    && !isValidAnswer(transaction.request, answer) && retry < retries; retry++) {
+                statistics.recordRetry(address(transaction.request));
+                answer = frame != null ? transmit(frame, frame.length, answerLength, raw, transaction.timeout)
+                        : transmit(codec.buffer(), codec.encode(transaction.request), answerLength, raw,
+                                transaction.timeout);
+            }
+            DooyaCurtainsHandler handler = transaction.handler;
+            if (handler != null) {
+                DooyaCurtainsCircuitBreaker breaker = breaker(address(transaction.request));
+                if (isValidAnswer(transaction.request, answer)) {
+                    if (breaker.recordSuccess()) {
+                        logger.debug("Motor {} answers again", DooyaCurtainsFrameCodec.toHex(transaction.request, 3));
+                        handler.communicationRestored();
+                    }
+                    handler.response(transaction.request, answer, transaction.channel);
+                } else if (breaker.recordFailure(System.nanoTime())) {
+                    logger.debug("Motor {} did not answer {} times, polling is reduced to probes",
+                            DooyaCurtainsFrameCodec.toHex(transaction.request, 3), breaker.getConsecutiveFailures());
+                    handler.communicationLost();
                 }
-                StringBuilder sbl = new StringBuilder(frame.length * 2);
-                for (byte b : frame)
-                    sbl.append(String.format("%02X ", b));
-                logger.debug("receive: {}", sbl);
-            } catch (IOException e1) {
-                logger.debug("Error reading from serial port: {}", e1.getMessage(), e1);
             }
+            transaction.future.complete(answer);
+        } catch (UncheckedIOException e) {
+            // never reached the motor, which says nothing about it
+            logger.debug("Transaction not sent: {}", e.getMessage());
+            transaction.future.completeExceptionally(e);
+        } catch (RuntimeException e) {
+            logger.warn("Transaction failed: {}", e.getMessage());
+            transaction.future.completeExceptionally(e);
         }
-        return frame;
     }
 
-    private void disconnect() {
-        logger.debug("disconnecting port...");
-        if (thing.getStatus() != ThingStatus.REMOVING) {
-            updateStatus(ThingStatus.OFFLINE);
-        }
-        synchronized (this) {
-            try {
-                InputStream inputStream = this.inputStream;
-                if (inputStream != null) {
-                    inputStream.close();
+    void connect() {
+        synchronized (busLock) {
+            DooyaCurtainsTransport transport = this.transport;
+            if (transport == null) {
+                transport = createTransport(getConfigAs(DooyaCurtainsConfiguration.class));
+                if (transport == null) {
+                    return;
                 }
+                this.transport = transport;
+            }
+            if (transport.isOpen()) {
+                return;
+            }
+            lastConnectAttempt = System.nanoTime();
+            try {
+                transport.open();
+                logger.debug("Connected to {}", transport);
+                // failures seen before the connection was lost say nothing about the motors now, poll all of them
+                breakers.clear();
+                updateStatus(ThingStatus.ONLINE);
             } catch (IOException e) {
-                inputStream = null;
+                logger.warn("Cannot connect to {}: {}", transport, e.getMessage());
+                transport.close();
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.getMessage());
+            }
+        }
+    }
+
+    private boolean isConnected() {
+        DooyaCurtainsTransport transport = this.transport;
+        return transport != null && transport.isOpen();
+    }
+
+    /**
+     * Writes a complete frame including its CRC and waits until the answer has been received or the
+     * timeout has expired. Only called on the bus thread. Without an explicit timeout the receive timeout
+     * follows the learned response time of the addressed motor, bounded by the transmission time of both
+     * frames and the configured response timeout.
+     *
+     * @param raw take the first answerLenght bytes as the answer instead of a decoded frame
+     * @param timeout receive timeout in milliseconds, 0 to use the learned one
+     * @throws UncheckedIOException if the transport is closed or fails, the request has then not been answered
+     *             because of the bus rather than the motor
+     */
+    private byte[] transmit(byte[] request, int length, int answerLenght, boolean raw, long timeout) {
+        synchronized (busLock) {
+            if (logger.isDebugEnabled()) {
+                logger.debug("   send: {}", DooyaCurtainsFrameCodec.toHex(request, length));
             }
+
+            DooyaCurtainsTransport transport = this.transport;
+            if (transport == null || !transport.isOpen()) {
+                throw new UncheckedIOException(new IOException("Bus is not connected"));
+            }
+            byte[] frame = new byte[answerLenght];
+            DooyaCurtainsResponseTimer timer = responseTimer(address(request));
+            DooyaCurtainsBusCapture capture = this.capture;
+            long maximumTimeout = Math.max(responseTimeout, characterTime * (length + answerLenght) + frameGap);
+            long receiveTimeout = timeout > 0 ? TimeUnit.MILLISECONDS.toNanos(timeout)
+                    : timer.timeout(characterTime * (length + answerLenght) + frameGap + MINIMUM_TURNAROUND,
+                            maximumTimeout);
+            // motors detect the end of a frame by the silence after it, keep it before the next request
+            long silence = lastBusActivity + frameGap - System.nanoTime();
+            if (silence > 0) {
+                LockSupport.parkNanos(silence);
+            }
+            long start = System.nanoTime();
+            receivedLength = 0;
+            rejectedFrames = 0;
+            IOException failure = null;
             try {
-                OutputStream outputStream = this.outputStream;
-                if (outputStream != null) {
-                    outputStream.close();
+                // drop late answers and noise before the new request goes out
+                int stale;
+                while ((stale = transport.read(readBuffer, 0, readBuffer.length, 0)) > 0) {
+                    if (capture != null) {
+                        capture.received(readBuffer, 0, stale);
+                    }
+                }
+                decoder.reset();
+                expectedAddressHigh = request[1];
+                expectedAddressLow = request[2];
+                expecting = answerLenght > 0;
+                rawLength = raw ? Math.min(answerLenght, receiveBuffer.length) : 0;
+                rawReceived = 0;
+                transport.write(request, 0, length);
+                if (capture != null) {
+                    capture.sent(request, 0, length);
+                }
+                long deadline = start + receiveTimeout;
+                long remaining = receiveTimeout;
+                while (expecting && receivedLength == 0 && remaining > 0 && !Thread.currentThread().isInterrupted()) {
+                    receive(transport, remaining);
+                    remaining = deadline - System.nanoTime();
                 }
             } catch (IOException e) {
-                outputStream = null;
+                logger.debug("Bus I/O error on {}: {}", transport, e.getMessage());
+                transport.close();
+                updateStatus(ThingStatus.OFFLINE, ThingStatusDetail.COMMUNICATION_ERROR, e.getMessage());
+                failure = e;
             }
-            try {
-                SerialPort serialPort = this.serialPort;
-                if (serialPort != null) {
-                    serialPort.close();
-                    this.serialPort = null;
-                    logger.debug("disconnected port");
+            int received = receivedLength;
+            int rejected = rejectedFrames;
+            int pending = decoder.size();
+            System.arraycopy(receiveBuffer, 0, frame, 0, Math.min(received, frame.length));
+            expecting = false;
+            receivedLength = 0;
+            rawLength = 0;
+            lastBusActivity = System.nanoTime();
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            long busy = lastBusActivity - start;
+            long roundTrip = TimeUnit.NANOSECONDS.toMicros(busy);
+            if (answerLenght > 0) {
+                // a missing answer counts as an error when something garbled arrived instead
+                boolean timedOut = received == 0;
+                statistics.recordTransaction(address(request), busy, timedOut && rejected == 0,
+                        timedOut && rejected > 0);
+                if (!timedOut) {
+                    timer.record(busy);
+                } else if (timeout <= 0) {
+                    timer.recordTimeout(maximumTimeout);
+                }
+            }
+
+            if (logger.isDebugEnabled()) {
+                String answer = DooyaCurtainsFrameCodec.toHex(frame, received);
+                if (received == 0 && answerLenght > 0) {
+                    logger.debug("receive: timeout after {} us, {} frames rejected, {} bytes incomplete", roundTrip,
+                            rejected, pending);
+                } else {
+                    logger.debug("receive: {} round-trip {} us", answer, roundTrip);
                 }
-            } catch (Exception exception) {
-                logger.error("disconnected port {}", exception.getMessage());
             }
+            return frame;
+        }
+    }
+
+    private DooyaCurtainsCircuitBreaker breaker(int address) {
+        return breakers.computeIfAbsent(address, a -> new DooyaCurtainsCircuitBreaker(failureThreshold,
+                minimumProbeInterval, maximumProbeInterval));
+    }
+
+    private DooyaCurtainsResponseTimer responseTimer(int address) {
+        return responseTimers.computeIfAbsent(address, a -> new DooyaCurtainsResponseTimer());
+    }
+
+    /**
+     * Returns the motor address of a request or answer, or of the two address bytes alone.
+     */
+    private static int address(byte[] request) {
+        if (request.length == 2) {
+            return (request[0] & 0xFF) << 8 | (request[1] & 0xFF);
+        }
+        return (request[1] & 0xFF) << 8 | (request[2] & 0xFF);
+    }
+
+    static boolean isValidAnswer(byte[] request, byte[] answer) {
+        return answer.length > 2 && answer[0] == 0x55 && answer[1] == request[1] && answer[2] == request[2];
+    }
+
+    /**
+     * Feeds the received bytes to the decoder and takes the first frame from the expected address as
+     * the answer.
+     *
+     * @param timeout maximum wait for the first bytes in nanoseconds
+     */
+    private void receive(DooyaCurtainsTransport transport, long timeout) throws IOException {
+        int result = transport.read(readBuffer, 0, readBuffer.length, timeout);
+        if (result <= 0) {
+            return;
+        }
+        DooyaCurtainsBusCapture capture = this.capture;
+        if (capture != null) {
+            capture.received(readBuffer, 0, result);
+        }
+        if (rawLength > 0) {
+            int count = Math.min(result, rawLength - rawReceived);
+            System.arraycopy(readBuffer, 0, receiveBuffer, rawReceived, count);
+            rawReceived += count;
+            if (rawReceived == rawLength) {
+                receivedLength = rawLength;
+            }
+            return;
+        }
+        decoder.feed(readBuffer, 0, result);
+        long crcErrors = decoder.getCrcErrors();
+        int length;
+        while ((length = decoder.next(decodedFrame)) > 0) {
+            if (expecting && receivedLength == 0 && decodedFrame[1] == expectedAddressHigh
+                    && decodedFrame[2] == expectedAddressLow) {
+                System.arraycopy(decodedFrame, 0, receiveBuffer, 0, length);
+                receivedLength = length;
+            } else {
+                if (expecting) {
+                    rejectedFrames++;
+                }
+                if (logger.isTraceEnabled()) {
+                    logger.trace("Discarding unexpected frame {}", DooyaCurtainsFrameCodec.toHex(decodedFrame, length));
+                }
+            }
+        }
+        if (expecting) {
+            rejectedFrames += (int) (decoder.getCrcErrors() - crcErrors);
+        }
+    }
+
+    private void disconnect() {
+        logger.debug("disconnecting port...");
+        if (thing.getStatus() != ThingStatus.REMOVING) {
+            updateStatus(ThingStatus.OFFLINE);
+        }
+        DooyaCurtainsTransport transport = this.transport;
+        if (transport != null) {
+            transport.close();
         }
     }
 
     @Override
     public void dispose() {
         logger.debug("Disposing...");
-        ScheduledFuture<?> pollingTask = this.pollingTask;
-        if (pollingTask != null) {
-            pollingTask.cancel(true);
+        stopProgramming();
+        stopBusThread();
+        ScheduledFuture<?> metricsTask = this.metricsTask;
+        if (metricsTask != null) {
+            metricsTask.cancel(true);
+        }
+        DooyaCurtainsTransaction transaction;
+        while ((transaction = transactions.poll()) != null) {
+            transaction.future.cancel(false);
+        }
+        synchronized (deferred) {
+            deferred.forEach(deferredTransaction -> deferredTransaction.future.cancel(false));
+            deferred.clear();
         }
+        pendingReads.clear();
+        pendingMotions.clear();
+        pollScheduler.clear();
+        breakers.clear();
+        responseTimers.clear();
         disconnect();
+        DooyaCurtainsBusCapture capture = this.capture;
+        if (capture != null) {
+            capture.close();
+            this.capture = null;
+        }
         super.dispose();
     }
 
     @Override
     public void handleCommand(ChannelUID channelUID, Command command) {
-        if (command.equals(OnOffType.ON)) {
+        if (!PROGRAM_SWITCH.equals(channelUID.getId())) {
+            return;
+        }
+        if (command == OnOffType.ON) {
             Channel program = thing.getChannel(channelUID);
-            byte[] address = new byte[2];
-            if (program != null) {
-                if (program.getConfiguration().get("Address") != null) {
-                    address = HexFormat.of().parseHex(program.getConfiguration().get("Address").toString());
+            Object addresses = program != null ? program.getConfiguration().get("Address") : null;
+            // a single address or a batch of addresses and address ranges, e.g. 0101-0110,0120
+            List<Integer> targets = new ArrayList<>();
+            String batch = addresses != null ? addresses.toString() : "";
+            for (int[] range : DooyaCurtainsDiscoveryService.parseRanges(batch)) {
+                for (int address = range[0]; address <= range[1]; address++) {
+                    targets.add(address);
                 }
             }
-            byte[] data = new byte[] { 0x55, 0x00, 0x00, 0x02, 0x00, 0x02, address[0], address[1] };
-            byte[] answer = send(data, 15);
-            try {
-                Thread.sleep(500);
-            } catch (InterruptedException ignored) {
-
-            }
-            if (answer[8] == address[0] && answer[9] == address[1]) {
+            if (targets.isEmpty()) {
+                updateState(PROGRAM_STATUS, new StringType("No valid address configured"));
                 updateState(channelUID, OnOffType.OFF);
+                return;
             }
+            startProgramming(targets);
+        } else if (command == OnOffType.OFF) {
+            stopProgramming();
+        }
+    }
 
+    /**
+     * Programs the addresses one after the other into the motors which are put into programming mode.
+     * The programming frame is repeated until a motor confirms the address or the programming timeout has
+     * passed, then the next address follows right away. Status polls and the address scan wait meanwhile.
+     */
+    private synchronized void startProgramming(List<Integer> targets) {
+        if (programming) {
+            logger.debug("Address programming is already running");
+            return;
         }
+        synchronized (deferred) {
+            programming = true;
+        }
+        programmingTargets = targets;
+        programmingIndex = 0;
+        programmedAddresses = 0;
+        unprogrammedAddresses.clear();
+        programmingDeadline = System.nanoTime() + programmingTimeout;
+        updateProgrammingStatus();
+        attemptProgramming();
     }
 
-    @Override
-    public void serialEvent(SerialPortEvent serialPortEvent) {
-        logger.warn("Serial event {}", serialPortEvent.getEventType());
+    private synchronized void attemptProgramming() {
+        programmingTask = null;
+        if (!programming) {
+            return;
+        }
+        int target = programmingTargets.get(programmingIndex);
+        byte[] request = new byte[] { 0x55, 0x00, 0x00, 0x02, 0x00, 0x02, (byte) (target >> 8), (byte) target };
+        DooyaCurtainsTransaction transaction = new DooyaCurtainsTransaction(null, null, request,
+                DooyaCurtainsTransaction.Priority.COMMAND);
+        transaction.rawAnswerLength = PROGRAMMING_ANSWER_LENGTH;
+        submit(transaction).whenComplete((answer, error) -> programmingAnswer(target, answer));
+    }
+
+    private synchronized void programmingAnswer(int target, byte @Nullable [] answer) {
+        if (!programming || programmingTargets.get(programmingIndex) != target) {
+            return;
+        }
+        // the answer of the motor carries the address it has taken at [8] and [9]
+        if (answer != null && answer.length > 9 && answer[8] == (byte) (target >> 8) && answer[9] == (byte) target) {
+            logger.info("Motor programmed to address {}", String.format("%04X", target));
+            programmedAddresses++;
+        } else if (System.nanoTime() - programmingDeadline >= 0) {
+            logger.info("No motor took address {}", String.format("%04X", target));
+            unprogrammedAddresses.add(String.format("%04X", target));
+        } else {
+            programmingTask = scheduler.schedule(this::attemptProgramming, PROGRAMMING_RETRY_INTERVAL,
+                    TimeUnit.MILLISECONDS);
+            return;
+        }
+        programmingIndex++;
+        if (programmingIndex < programmingTargets.size()) {
+            programmingDeadline = System.nanoTime() + programmingTimeout;
+            updateProgrammingStatus();
+            attemptProgramming();
+        } else {
+            finishProgramming("Programmed");
+        }
+    }
+
+    private synchronized void stopProgramming() {
+        if (programming) {
+            ScheduledFuture<?> programmingTask = this.programmingTask;
+            if (programmingTask != null) {
+                programmingTask.cancel(false);
+                this.programmingTask = null;
+            }
+            finishProgramming("Stopped, programmed");
+        }
+    }
+
+    private void finishProgramming(String result) {
+        synchronized (deferred) {
+            programming = false;
+            // let the polls and probes which waited meanwhile go out
+            transactions.addAll(deferred);
+            deferred.clear();
+        }
+        wakeUpBus();
+        String status = String.format("%s %d of %d addresses", result, programmedAddresses,
+                programmingTargets.size());
+        if (!unprogrammedAddresses.isEmpty()) {
+            status += ", no motor took " + String.join(", ", unprogrammedAddresses);
+        }
+        updateState(PROGRAM_STATUS, new StringType(status));
+        updateState(PROGRAM_SWITCH, OnOffType.OFF);
+    }
+
+    private void updateProgrammingStatus() {
+        updateState(PROGRAM_STATUS,
+                new StringType(String.format("Waiting for a motor to take address %04X (%d of %d)",
+                        programmingTargets.get(programmingIndex), programmingIndex + 1, programmingTargets.size())));
     }
 }
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsResponseTimer} class learns how fast one motor answers. It keeps a smoothed
+ * response time and its mean deviation, and derives the receive timeout from both the way TCP derives
+ * its retransmission timeout. An unanswered request doubles the smoothed time, so a motor which became
+ * slower is not cut off forever.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsResponseTimer {
+
+    private static final double GAIN = 0.125;
+    private static final double DEVIATION_GAIN = 0.25;
+
+    private double smoothed = -1;
+    private double deviation;
+
+    /**
+     * Records the time between the start of a request and its complete answer in nanoseconds.
+     */
+    public synchronized void record(long responseTime) {
+        if (smoothed < 0) {
+            smoothed = responseTime;
+            deviation = responseTime / 2.0;
+        } else {
+            deviation += DEVIATION_GAIN * (Math.abs(responseTime - smoothed) - deviation);
+            smoothed += GAIN * (responseTime - smoothed);
+        }
+    }
+
+    /**
+     * Records an unanswered request. The learned values never grow beyond the maximum receive timeout in
+     * nanoseconds, a motor which does not answer for a long time would otherwise overflow them.
+     */
+    public synchronized void recordTimeout(long maximum) {
+        if (smoothed >= 0) {
+            smoothed = Math.min(smoothed * 2, maximum);
+            deviation = Math.min(deviation, maximum);
+        }
+    }
+
+    /**
+     * Returns the receive timeout in nanoseconds, the maximum as long as nothing has been learned.
+     */
+    public synchronized long timeout(long minimum, long maximum) {
+        if (smoothed < 0) {
+            return maximum;
+        }
+        return Math.max(minimum, Math.min(maximum, (long) (smoothed + 4 * deviation)));
+    }
+
+    /**
+     * Returns the smoothed response time in nanoseconds, -1 if nothing has been learned yet.
+     */
+    public synchronized long getResponseTime() {
+        return (long) smoothed;
+    }
+}
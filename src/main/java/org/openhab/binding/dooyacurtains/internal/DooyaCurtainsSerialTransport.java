@@ -0,0 +1,181 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.TooManyListenersException;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.io.transport.serial.PortInUseException;
+import org.openhab.core.io.transport.serial.SerialPort;
+import org.openhab.core.io.transport.serial.SerialPortEvent;
+import org.openhab.core.io.transport.serial.SerialPortEventListener;
+import org.openhab.core.io.transport.serial.SerialPortIdentifier;
+import org.openhab.core.io.transport.serial.SerialPortManager;
+import org.openhab.core.io.transport.serial.UnsupportedCommOperationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DooyaCurtainsSerialTransport} connects a bridge to a bus behind a local serial port, for
+ * example an USB to RS485 adapter. Serial events only wake the bus thread, which reads the input itself.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsSerialTransport implements DooyaCurtainsTransport, SerialPortEventListener {
+
+    private final Logger logger = LoggerFactory.getLogger(DooyaCurtainsSerialTransport.class);
+    private final SerialPortManager serialPortManager;
+    private final String portName;
+    private final String owner;
+    private final int baudRate;
+    private final Object receiveLock = new Object();
+    private boolean dataAvailable;
+    private @Nullable SerialPort serialPort;
+    private @Nullable InputStream inputStream;
+    private @Nullable OutputStream outputStream;
+
+    public DooyaCurtainsSerialTransport(SerialPortManager serialPortManager, String portName, String owner,
+            int baudRate) {
+        this.serialPortManager = serialPortManager;
+        this.portName = portName;
+        this.owner = owner;
+        this.baudRate = baudRate;
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        SerialPortIdentifier portId = serialPortManager.getIdentifier(portName);
+        if (portId == null) {
+            throw new IOException("Port " + portName + " is unknown!");
+        }
+        try {
+            SerialPort serial = portId.open(owner, 2000);
+            serial.setSerialPortParams(baudRate, SerialPort.DATABITS_8, SerialPort.STOPBITS_1, SerialPort.PARITY_NONE);
+            inputStream = serial.getInputStream();
+            outputStream = serial.getOutputStream();
+            serialPort = serial;
+            try {
+                serial.addEventListener(this);
+                serial.notifyOnDataAvailable(true);
+            } catch (TooManyListenersException e) {
+                logger.debug("Serial events are not available, falling back to reading on timeout");
+            }
+        } catch (PortInUseException e) {
+            throw new IOException("Port is in use!", e);
+        } catch (UnsupportedCommOperationException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            InputStream inputStream = this.inputStream;
+            if (inputStream != null) {
+                inputStream.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Error closing input stream: {}", e.getMessage());
+        }
+        inputStream = null;
+        try {
+            OutputStream outputStream = this.outputStream;
+            if (outputStream != null) {
+                outputStream.close();
+            }
+        } catch (IOException e) {
+            logger.debug("Error closing output stream: {}", e.getMessage());
+        }
+        outputStream = null;
+        try {
+            SerialPort serialPort = this.serialPort;
+            if (serialPort != null) {
+                serialPort.removeEventListener();
+                serialPort.close();
+                logger.debug("disconnected port");
+            }
+        } catch (Exception exception) {
+            logger.error("disconnected port {}", exception.getMessage());
+        }
+        serialPort = null;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return serialPort != null && inputStream != null && outputStream != null;
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        OutputStream out = outputStream;
+        if (out == null) {
+            throw new IOException("Port is closed");
+        }
+        out.write(data, offset, length);
+        out.flush();
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length, long timeout) throws IOException {
+        InputStream in = inputStream;
+        if (in == null) {
+            throw new IOException("Port is closed");
+        }
+        int available = in.available();
+        if (available == 0 && timeout > 0) {
+            synchronized (receiveLock) {
+                if (!dataAvailable) {
+                    // serial port implementations without event support are read on timeout
+                    try {
+                        TimeUnit.NANOSECONDS.timedWait(receiveLock, timeout);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                dataAvailable = false;
+            }
+            available = in.available();
+        }
+        if (available == 0) {
+            return 0;
+        }
+        int result = in.read(buffer, offset, Math.min(available, length));
+        if (result < 0) {
+            throw new IOException("End of stream");
+        }
+        return result;
+    }
+
+    @Override
+    public void serialEvent(SerialPortEvent serialPortEvent) {
+        if (serialPortEvent.getEventType() != SerialPortEvent.DATA_AVAILABLE) {
+            logger.debug("Serial event {}", serialPortEvent.getEventType());
+            return;
+        }
+        synchronized (receiveLock) {
+            dataAvailable = true;
+            receiveLock.notifyAll();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return portName;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link DooyaCurtainsTcpTransport} connects a bridge to a bus behind an Ethernet to RS485 converter
+ * which forwards the raw bytes over a TCP connection, like ser2net does. The socket channel is
+ * non-blocking and waits for answers with a selector, so a bus thread never hangs on a dead gateway.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsTcpTransport implements DooyaCurtainsTransport {
+
+    private static final int CONNECT_TIMEOUT = 5000;
+    private final Logger logger = LoggerFactory.getLogger(DooyaCurtainsTcpTransport.class);
+    private final String host;
+    private final int port;
+    private @Nullable SocketChannel channel;
+    private @Nullable Selector selector;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(0);
+
+    public DooyaCurtainsTcpTransport(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            // frames are short and must leave at once
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.configureBlocking(false);
+            Selector selector = Selector.open();
+            channel.register(selector, SelectionKey.OP_READ);
+            this.selector = selector;
+            this.channel = channel;
+        } catch (IOException e) {
+            channel.close();
+            throw new IOException("Cannot connect to " + this + ": " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            Selector selector = this.selector;
+            if (selector != null) {
+                selector.close();
+            }
+            SocketChannel channel = this.channel;
+            if (channel != null) {
+                channel.close();
+                logger.debug("disconnected from {}", this);
+            }
+        } catch (IOException e) {
+            logger.debug("Error closing connection to {}: {}", this, e.getMessage());
+        }
+        selector = null;
+        channel = null;
+    }
+
+    @Override
+    public boolean isOpen() {
+        SocketChannel channel = this.channel;
+        return channel != null && channel.isConnected();
+    }
+
+    @Override
+    public void write(byte[] data, int offset, int length) throws IOException {
+        SocketChannel channel = this.channel;
+        if (channel == null) {
+            throw new IOException("Not connected");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(data, offset, length);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length, long timeout) throws IOException {
+        SocketChannel channel = this.channel;
+        Selector selector = this.selector;
+        if (channel == null || selector == null) {
+            throw new IOException("Not connected");
+        }
+        if (readBuffer.array() != buffer) {
+            readBuffer = ByteBuffer.wrap(buffer);
+        }
+        readBuffer.limit(offset + length).position(offset);
+        int result = channel.read(readBuffer);
+        if (result == 0 && timeout > 0) {
+            selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout)));
+            selector.selectedKeys().clear();
+            result = channel.read(readBuffer);
+        }
+        if (result < 0) {
+            throw new IOException("Connection closed by " + this);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return host + ":" + port;
+    }
+}
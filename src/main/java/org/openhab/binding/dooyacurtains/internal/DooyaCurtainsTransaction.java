@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.thing.Channel;
+
+/**
+ * The {@link DooyaCurtainsTransaction} class holds a single request waiting in the bridge queue,
+ * together with the handler and channel which receive the answer. The future is completed with the
+ * answer once the transaction has been executed on the bus.
+ *
+ * Transactions are ordered by priority first and by submission order within the same priority.
+ * Register reads get a key built from the motor address and the register range, so that the bridge
+ * can merge a read with one for the same key which is still waiting in the queue. Motion commands
+ * replace the one for the same address which is still waiting.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsTransaction implements Comparable<DooyaCurtainsTransaction> {
+
+    public enum Priority {
+        // user commands, always sent before anything else
+        COMMAND,
+        // background status reads
+        POLL,
+        // address scan, only uses the bus when nothing else is waiting
+        DISCOVERY
+    }
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    public final @Nullable DooyaCurtainsHandler handler;
+    public final @Nullable Channel channel;
+    public final byte[] request;
+    // request with CRC built in advance, encoded by the bridge if not set
+    public byte @Nullable [] frame;
+    public final Priority priority;
+    public final CompletableFuture<byte[]> future = new CompletableFuture<>();
+    // address and register range of a read request, -1 for anything else
+    public final int key;
+    // motion control command, replaces one for the same address which has not been sent yet
+    public final boolean motion;
+    // receive timeout in milliseconds, 0 means the learned timeout of the motor
+    public long timeout;
+    // sent to a group or broadcast address, no motor answers
+    public boolean broadcast;
+    // answer of this length taken as received, for answers the frame decoder does not know, 0 to decode frames
+    public int rawAnswerLength;
+    private final long sequence = SEQUENCE.getAndIncrement();
+    public final long created = System.nanoTime();
+
+    public DooyaCurtainsTransaction(@Nullable DooyaCurtainsHandler handler, @Nullable Channel channel, byte[] request,
+            Priority priority) {
+        this.handler = handler;
+        this.channel = channel;
+        this.request = request;
+        this.priority = priority;
+        this.key = readKey(request);
+        this.motion = request.length > 4 && request[3] == 0x03 && request[4] >= 0x01 && request[4] <= 0x04;
+    }
+
+    private static int readKey(byte[] request) {
+        if (request.length < 6 || request[3] != 0x01) {
+            return -1;
+        }
+        return (request[1] & 0xFF) << 24 | (request[2] & 0xFF) << 16 | (request[4] & 0xFF) << 8 | (request[5] & 0xFF);
+    }
+
+    @Override
+    public int compareTo(DooyaCurtainsTransaction other) {
+        int result = priority.compareTo(other.priority);
+        return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+}
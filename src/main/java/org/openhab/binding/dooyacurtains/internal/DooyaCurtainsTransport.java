@@ -0,0 +1,49 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.io.IOException;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsTransport} interface is the byte stream between a bridge and its RS485 bus.
+ * All methods except {@link #close()} are only called on the bus thread of the bridge.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public interface DooyaCurtainsTransport {
+
+    /**
+     * Opens the connection to the bus.
+     *
+     * @throws IOException if the bus cannot be reached, with a message suitable for the thing status
+     */
+    void open() throws IOException;
+
+    void close();
+
+    boolean isOpen();
+
+    void write(byte[] data, int offset, int length) throws IOException;
+
+    /**
+     * Reads the bytes received so far. If nothing has been received yet, waits up to the timeout for
+     * the first bytes to arrive.
+     *
+     * @param timeout maximum wait in nanoseconds, 0 to return at once
+     * @return number of bytes read, 0 if nothing arrived in time
+     */
+    int read(byte[] buffer, int offset, int length, long timeout) throws IOException;
+}
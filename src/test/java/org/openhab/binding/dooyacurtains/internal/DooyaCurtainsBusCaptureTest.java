@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests for {@link DooyaCurtainsBusCapture} together with {@link DooyaCurtainsCaptureReader}.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsBusCaptureTest {
+
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private @TempDir @NonNullByDefault({}) Path directory;
+
+    private final byte[] request = DooyaCurtainsFrameCodec
+            .frame(new byte[] { 0x55, 0x12, 0x34, 0x01, DooyaCurtainsBindingConstants.REGISTER_POSITION, 0x04 });
+    private final byte[] answer = DooyaCurtainsFrameCodec
+            .frame(new byte[] { 0x55, 0x12, 0x34, 0x01, 0x04, 0x32, 0x00, 0x01, 0x00 });
+
+    @Test
+    public void readsBackWrittenRecords() throws IOException {
+        Path file = directory.resolve("bus.cap");
+        long start = System.currentTimeMillis();
+        try (DooyaCurtainsBusCapture capture = new DooyaCurtainsBusCapture(file, MEGABYTE, 2)) {
+            capture.sent(request, 0, request.length);
+            // received bytes are captured as they were read, fragments included
+            capture.received(answer, 0, 4);
+            capture.received(answer, 4, answer.length - 4);
+        }
+
+        try (DooyaCurtainsCaptureReader reader = new DooyaCurtainsCaptureReader(file)) {
+            assertRecord(reader, true, request);
+            long timestamp = reader.getTimestamp();
+            assertTrue(Math.abs(reader.getTime() - start) < 60_000);
+            assertRecord(reader, false, Arrays.copyOf(answer, 4));
+            assertTrue(reader.getTimestamp() - timestamp >= 0);
+            assertRecord(reader, false, Arrays.copyOfRange(answer, 4, answer.length));
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test
+    public void flushWritesBufferedRecords() throws IOException {
+        Path file = directory.resolve("bus.cap");
+        try (DooyaCurtainsBusCapture capture = new DooyaCurtainsBusCapture(file, MEGABYTE, 2)) {
+            capture.sent(request, 0, request.length);
+            assertEquals(DooyaCurtainsBusCapture.HEADER_LENGTH, Files.size(file));
+
+            capture.flush();
+
+            assertEquals(DooyaCurtainsBusCapture.HEADER_LENGTH + 11 + request.length, Files.size(file));
+        }
+    }
+
+    @Test
+    public void rotatesFullFiles() throws IOException {
+        Path file = directory.resolve("bus.cap");
+        int records = 0;
+        try (DooyaCurtainsBusCapture capture = new DooyaCurtainsBusCapture(file, 0, 2)) {
+            // the file size is at least one buffer of 64 KB, fill it about three times
+            for (; records < 12_000; records++) {
+                capture.sent(request, 0, request.length);
+            }
+        }
+
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(directory.resolve("bus.cap.1")));
+        assertFalse(Files.exists(directory.resolve("bus.cap.2")));
+        // the older files have been dropped, the kept ones hold complete records
+        int kept = count(file) + count(directory.resolve("bus.cap.1"));
+        assertTrue(kept > 0 && kept < records);
+    }
+
+    @Test
+    public void startsNewFileOnRestart() throws IOException {
+        Path file = directory.resolve("bus.cap");
+        try (DooyaCurtainsBusCapture capture = new DooyaCurtainsBusCapture(file, MEGABYTE, 3)) {
+            capture.sent(request, 0, request.length);
+        }
+        try (DooyaCurtainsBusCapture capture = new DooyaCurtainsBusCapture(file, MEGABYTE, 3)) {
+            capture.received(answer, 0, answer.length);
+        }
+
+        assertEquals(1, count(file));
+        assertEquals(1, count(directory.resolve("bus.cap.1")));
+        try (DooyaCurtainsCaptureReader reader = new DooyaCurtainsCaptureReader(file)) {
+            assertRecord(reader, false, answer);
+        }
+    }
+
+    private static void assertRecord(DooyaCurtainsCaptureReader reader, boolean sent, byte[] data)
+            throws IOException {
+        assertTrue(reader.next());
+        assertEquals(sent, reader.isSent());
+        assertArrayEquals(data, Arrays.copyOf(reader.getData(), reader.getLength()));
+    }
+
+    private static int count(Path file) throws IOException {
+        try (DooyaCurtainsCaptureReader reader = new DooyaCurtainsCaptureReader(file)) {
+            int records = 0;
+            while (reader.next()) {
+                records++;
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.mockito.Mockito.*;
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.binding.dooyacurtains.internal.DooyaCurtainsTransaction.Priority;
+import org.openhab.core.config.core.Configuration;
+import org.openhab.core.test.storage.VolatileStorageService;
+import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.binding.ThingHandlerCallback;
+import org.openhab.core.thing.binding.builder.BridgeBuilder;
+import org.openhab.core.thing.binding.builder.ThingBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DooyaCurtainsBusLoadBenchmark} runs the bridge and curtain handlers against a simulated
+ * bus with realistic motor turnaround times. {@code refreshCycle} is the time needed to refresh every
+ * motor once, {@code commandLatency} the time until a STOP sent while all motors are being polled has
+ * been answered.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DooyaCurtainsBusLoadBenchmark {
+
+    @Param({ "1", "10", "30", "60" })
+    public int motors;
+
+    @Param({ "10" })
+    public int latencyMillis;
+
+    private @NonNullByDefault({}) DooyaCurtainsSimulatedBus bus;
+    private @NonNullByDefault({}) DooyaCurtainsRS485BridgeHandler bridgeHandler;
+    private DooyaCurtainsHandler[] handlers = new DooyaCurtainsHandler[0];
+    private byte[][] requests = new byte[0][];
+    private byte[] stop = new byte[0];
+
+    @Setup
+    public void setup() throws Exception {
+        bus = new DooyaCurtainsSimulatedBus().withLatency(latencyMillis, TimeUnit.MILLISECONDS);
+        ThingHandlerCallback callback = mock(ThingHandlerCallback.class, withSettings().stubOnly());
+        Bridge bridge = BridgeBuilder.create(RS485_BRIDGE, "load")
+                .withConfiguration(new Configuration(Map.of("serialPort", DooyaCurtainsSimulatedBus.PORT))).build();
+        bridgeHandler = new DooyaCurtainsRS485BridgeHandler(bridge, bus.getSerialPortManager());
+        bridgeHandler.setCallback(callback);
+        bridgeHandler.startBusThread();
+
+        handlers = new DooyaCurtainsHandler[motors];
+        requests = new byte[motors][];
+        for (int i = 0; i < motors; i++) {
+            Thing thing = ThingBuilder.create(CURTAIN_THING, "curtain" + i).withBridge(bridge.getUID()).build();
+            handlers[i] = new DooyaCurtainsHandler(thing, new VolatileStorageService().getStorage(BINDING_ID));
+            handlers[i].setCallback(callback);
+            handlers[i].address = new byte[] { 0x01, (byte) i };
+            bus.addMotor(0x0100 | i);
+            requests[i] = new byte[] { 0x55, 0x01, (byte) i, 0x01, REGISTER_POSITION, 0x04 };
+        }
+        stop = new byte[] { 0x55, 0x01, 0x00, 0x03, 0x03 };
+    }
+
+    @TearDown
+    public void tearDown() {
+        bridgeHandler.dispose();
+        bus.close();
+    }
+
+    private CompletableFuture<byte[]> queuePolls() {
+        CompletableFuture<byte[]> last = CompletableFuture.completedFuture(new byte[0]);
+        for (int i = 0; i < motors; i++) {
+            last = bridgeHandler.submit(new DooyaCurtainsTransaction(handlers[i], null, requests[i], Priority.POLL));
+        }
+        return last;
+    }
+
+    @Benchmark
+    public byte[] refreshCycle() throws Exception {
+        return queuePolls().get(10, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Keeps the bridge busy with a poll of every motor while a command is measured.
+     */
+    @State(Scope.Thread)
+    public static class Polling {
+        private CompletableFuture<byte[]> polls = CompletableFuture.completedFuture(new byte[0]);
+
+        @Setup(Level.Invocation)
+        public void start(DooyaCurtainsBusLoadBenchmark benchmark) {
+            polls = benchmark.queuePolls();
+        }
+
+        @TearDown(Level.Invocation)
+        public void finish() throws Exception {
+            polls.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Benchmark
+    public byte[] commandLatency(Polling polling) throws Exception {
+        return bridgeHandler.submit(new DooyaCurtainsTransaction(handlers[0], null, stop, Priority.COMMAND)).get(10,
+                TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DooyaCurtainsCRC16ModbusBenchmark} measures the CRC of typical frame lengths, through the
+ * {@link java.util.zip.Checksum} interface and through the in-place range helpers.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DooyaCurtainsCRC16ModbusBenchmark {
+
+    @Param({ "6", "11", "64" })
+    public int length;
+
+    private byte[] buffer = new byte[0];
+
+    @Setup
+    public void setup() {
+        buffer = new byte[length + 2];
+        for (int i = 0; i < length; i++) {
+            buffer[i] = (byte) (0x55 + i * 31);
+        }
+    }
+
+    @Benchmark
+    public long checksum() {
+        DooyaCurtainsCRC16Modbus crc = new DooyaCurtainsCRC16Modbus();
+        crc.update(buffer, 0, length);
+        return crc.getValue();
+    }
+
+    @Benchmark
+    public int compute() {
+        return DooyaCurtainsCRC16Modbus.compute(buffer, 0, length);
+    }
+
+    @Benchmark
+    public byte[] append() {
+        DooyaCurtainsCRC16Modbus.append(buffer, 0, length);
+        return buffer;
+    }
+}
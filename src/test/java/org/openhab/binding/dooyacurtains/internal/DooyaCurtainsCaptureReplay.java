@@ -0,0 +1,93 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+
+/**
+ * The {@link DooyaCurtainsCaptureReplay} feeds a file written by {@link DooyaCurtainsBusCapture} back
+ * through the frame decoder and the curtain handlers. Received bytes are decoded as on the bus thread and
+ * every answer from the motor addressed by the last sent request is dispatched to the handler of that
+ * address, so traffic recorded in the field can be reproduced without hardware.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsCaptureReplay {
+
+    private final Map<Integer, DooyaCurtainsHandler> handlers;
+    private final DooyaCurtainsFrameDecoder decoder = new DooyaCurtainsFrameDecoder();
+    private final byte[] frame = new byte[DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH];
+    private long requests;
+    private long unexpectedFrames;
+
+    /**
+     * @param handlers curtain handlers by motor address
+     */
+    public DooyaCurtainsCaptureReplay(Map<Integer, DooyaCurtainsHandler> handlers) {
+        this.handlers = handlers;
+    }
+
+    /**
+     * Replays a capture file.
+     *
+     * @return number of answers dispatched to a handler
+     */
+    public long replay(Path file) throws IOException {
+        long dispatched = 0;
+        byte[] request = new byte[0];
+        decoder.reset();
+        try (DooyaCurtainsCaptureReader reader = new DooyaCurtainsCaptureReader(file)) {
+            while (reader.next()) {
+                if (reader.isSent()) {
+                    // the bridge drops everything received before a new request goes out
+                    decoder.reset();
+                    request = Arrays.copyOf(reader.getData(), Math.max(reader.getLength() - 2, 0));
+                    requests++;
+                    continue;
+                }
+                decoder.feed(reader.getData(), 0, reader.getLength());
+                int length;
+                while ((length = decoder.next(frame)) > 0) {
+                    DooyaCurtainsHandler handler = request.length > 2 && frame[1] == request[1]
+                            && frame[2] == request[2] ? handlers.get((request[1] & 0xFF) << 8 | (request[2] & 0xFF))
+                                    : null;
+                    if (handler != null) {
+                        handler.response(request, Arrays.copyOf(frame, length), null);
+                        dispatched++;
+                    } else {
+                        unexpectedFrames++;
+                    }
+                }
+            }
+        }
+        return dispatched;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getUnexpectedFrames() {
+        return unexpectedFrames;
+    }
+
+    public long getCrcErrors() {
+        return decoder.getCrcErrors();
+    }
+}
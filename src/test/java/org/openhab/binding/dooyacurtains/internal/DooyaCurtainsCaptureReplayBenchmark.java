@@ -0,0 +1,132 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.mockito.Mockito.*;
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.test.storage.VolatileStorageService;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingStatus;
+import org.openhab.core.thing.ThingStatusDetail;
+import org.openhab.core.thing.ThingStatusInfo;
+import org.openhab.core.thing.binding.ThingHandlerCallback;
+import org.openhab.core.thing.binding.builder.ThingBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DooyaCurtainsCaptureReplayBenchmark} replays bus traffic through the frame decoder and the
+ * curtain handlers. A capture recorded by a bridge is used when the system property
+ * {@code dooyacurtains.capture} points to it, otherwise poll cycles of {@code motors} motors are
+ * captured first, with every answer arriving in two pieces as it does from a serial port.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DooyaCurtainsCaptureReplayBenchmark {
+
+    private static final int CYCLES = 100;
+
+    @Param({ "10", "60" })
+    public int motors;
+
+    private Path file = Path.of("");
+    private boolean temporary;
+    private @NonNullByDefault({}) DooyaCurtainsCaptureReplay replay;
+
+    @Setup
+    public void setup() throws IOException {
+        String capture = System.getProperty("dooyacurtains.capture");
+        if (capture != null) {
+            file = Path.of(capture);
+        } else {
+            file = Files.createTempFile("dooyacurtains", ".capture");
+            Files.delete(file);
+            temporary = true;
+            record();
+        }
+        ThingHandlerCallback callback = mock(ThingHandlerCallback.class, withSettings().stubOnly());
+        Map<Integer, DooyaCurtainsHandler> handlers = new HashMap<>();
+        try (DooyaCurtainsCaptureReader reader = new DooyaCurtainsCaptureReader(file)) {
+            while (reader.next()) {
+                byte[] data = reader.getData();
+                if (reader.isSent() && reader.getLength() > 2) {
+                    handlers.computeIfAbsent((data[1] & 0xFF) << 8 | (data[2] & 0xFF), address -> {
+                        Thing thing = ThingBuilder.create(CURTAIN_THING, String.format("curtain%04X", address))
+                                .build();
+                        DooyaCurtainsHandler handler = new DooyaCurtainsHandler(thing,
+                                new VolatileStorageService().getStorage(BINDING_ID));
+                        handler.setCallback(callback);
+                        thing.setStatusInfo(new ThingStatusInfo(ThingStatus.ONLINE, ThingStatusDetail.NONE, null));
+                        handler.address = new byte[] { (byte) (address >> 8), address.byteValue() };
+                        return handler;
+                    });
+                }
+            }
+        }
+        replay = new DooyaCurtainsCaptureReplay(handlers);
+    }
+
+    private void record() throws IOException {
+        try (DooyaCurtainsBusCapture capture = new DooyaCurtainsBusCapture(file, 64L * 1024 * 1024, 1)) {
+            for (int cycle = 0; cycle < CYCLES; cycle++) {
+                for (int i = 0; i < motors; i++) {
+                    byte[] request = DooyaCurtainsFrameCodec
+                            .frame(new byte[] { 0x55, 0x01, (byte) i, 0x01, REGISTER_POSITION, 0x04 });
+                    byte[] answer = DooyaCurtainsFrameCodec.frame(
+                            new byte[] { 0x55, 0x01, (byte) i, 0x01, 0x04, (byte) (cycle % 101), 0x00, 0x00, 0x00 });
+                    capture.sent(request, 0, request.length);
+                    capture.received(answer, 0, 5);
+                    capture.received(answer, 5, answer.length - 5);
+                }
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (temporary) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+        return replay.replay(file);
+    }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link DooyaCurtainsCircuitBreaker}.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsCircuitBreakerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final DooyaCurtainsCircuitBreaker breaker = new DooyaCurtainsCircuitBreaker(3, SECOND, 4 * SECOND);
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        assertFalse(breaker.recordFailure(0));
+        assertFalse(breaker.recordFailure(0));
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.allowPoll(0));
+
+        assertTrue(breaker.recordFailure(0));
+        assertTrue(breaker.isOpen());
+        assertEquals(3, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void successResetsFailureCount() {
+        breaker.recordFailure(0);
+        breaker.recordFailure(0);
+        assertFalse(breaker.recordSuccess());
+        breaker.recordFailure(0);
+
+        assertFalse(breaker.isOpen());
+        assertEquals(1, breaker.getConsecutiveFailures());
+    }
+
+    @Test
+    public void letsOneProbeThroughPerBackoff() {
+        open(0);
+
+        assertFalse(breaker.allowPoll(SECOND / 2));
+        assertTrue(breaker.allowPoll(SECOND));
+        assertFalse(breaker.allowPoll(SECOND + 1));
+    }
+
+    @Test
+    public void doublesBackoffUpToMaximum() {
+        open(0);
+
+        // failed probes double the backoff: 2 s, 4 s, then it stays at the maximum
+        breaker.recordFailure(SECOND);
+        assertFalse(breaker.allowPoll(3 * SECOND - 1));
+        assertTrue(breaker.allowPoll(3 * SECOND));
+        breaker.recordFailure(3 * SECOND);
+        assertFalse(breaker.allowPoll(7 * SECOND - 1));
+        assertTrue(breaker.allowPoll(7 * SECOND));
+        breaker.recordFailure(7 * SECOND);
+        assertFalse(breaker.allowPoll(11 * SECOND - 1));
+        assertTrue(breaker.allowPoll(11 * SECOND));
+    }
+
+    @Test
+    public void closesOnFirstValidAnswer() {
+        open(0);
+        breaker.recordFailure(SECOND);
+
+        assertTrue(breaker.recordSuccess());
+        assertFalse(breaker.isOpen());
+        assertEquals(0, breaker.getConsecutiveFailures());
+        assertTrue(breaker.allowPoll(SECOND));
+        assertFalse(breaker.recordSuccess());
+    }
+
+    @Test
+    public void startsWithMinimumBackoffWhenOpenedAgain() {
+        open(0);
+        breaker.recordFailure(SECOND);
+        breaker.recordFailure(3 * SECOND);
+        breaker.recordSuccess();
+
+        open(10 * SECOND);
+
+        assertFalse(breaker.allowPoll(11 * SECOND - 1));
+        assertTrue(breaker.allowPoll(11 * SECOND));
+    }
+
+    private void open(long now) {
+        while (!breaker.isOpen()) {
+            breaker.recordFailure(now);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for the address ranges of {@link DooyaCurtainsDiscoveryService}.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsDiscoveryServiceTest {
+
+    @Test
+    public void parsesRangesAndSingleAddresses() {
+        List<int[]> ranges = DooyaCurtainsDiscoveryService.parseRanges("0001-00FF,FEFE");
+
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new int[] { 0x0001, 0x00FF }, ranges.get(0));
+        assertArrayEquals(new int[] { 0xFEFE, 0xFEFE }, ranges.get(1));
+    }
+
+    @Test
+    public void acceptsSpacesAndLowerCase() {
+        List<int[]> ranges = DooyaCurtainsDiscoveryService.parseRanges(" 0a00 - 0aff , 1234 ");
+
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new int[] { 0x0A00, 0x0AFF }, ranges.get(0));
+        assertArrayEquals(new int[] { 0x1234, 0x1234 }, ranges.get(1));
+    }
+
+    @Test
+    public void excludesProgrammingAndBroadcastAddresses() {
+        List<int[]> ranges = DooyaCurtainsDiscoveryService.parseRanges("0000-FFFF");
+
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new int[] { 0x0001, 0xFFFE }, ranges.get(0));
+        assertTrue(DooyaCurtainsDiscoveryService.parseRanges("0000").isEmpty());
+        assertTrue(DooyaCurtainsDiscoveryService.parseRanges("FFFF").isEmpty());
+    }
+
+    @Test
+    public void skipsInvalidAndEmptyRanges() {
+        List<int[]> ranges = DooyaCurtainsDiscoveryService.parseRanges("zz,,0200-0100,0010-0020,");
+
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new int[] { 0x0010, 0x0020 }, ranges.get(0));
+        assertTrue(DooyaCurtainsDiscoveryService.parseRanges("").isEmpty());
+    }
+}
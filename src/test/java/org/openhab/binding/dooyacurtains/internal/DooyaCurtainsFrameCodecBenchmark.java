@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DooyaCurtainsFrameCodecBenchmark} measures encoding of requests into bus frames.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DooyaCurtainsFrameCodecBenchmark {
+
+    private final DooyaCurtainsFrameCodec codec = new DooyaCurtainsFrameCodec();
+    private final byte[] readRequest = { 0x55, 0x12, 0x34, 0x01, 0x02, 0x04 };
+    private final byte[] positionRequest = { 0x55, 0x12, 0x34, 0x03, 0x04, 0x32 };
+
+    @Benchmark
+    public int encodeRead() {
+        return codec.encode(readRequest);
+    }
+
+    @Benchmark
+    public int encodePosition() {
+        return codec.encode(positionRequest);
+    }
+
+    @Benchmark
+    public byte[] frame() {
+        return DooyaCurtainsFrameCodec.frame(readRequest);
+    }
+
+    @Benchmark
+    public int answerLength() {
+        return DooyaCurtainsFrameCodec.answerLength(readRequest);
+    }
+}
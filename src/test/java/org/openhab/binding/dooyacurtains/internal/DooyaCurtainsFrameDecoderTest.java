@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link DooyaCurtainsFrameDecoder}.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsFrameDecoderTest {
+
+    private final DooyaCurtainsFrameDecoder decoder = new DooyaCurtainsFrameDecoder();
+    private final byte[] frame = new byte[DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH];
+    private final byte[] readAnswer = DooyaCurtainsFrameCodec
+            .frame(new byte[] { 0x55, 0x12, 0x34, 0x01, 0x04, 0x32, 0x00, 0x01, 0x00 });
+    private final byte[] controlEcho = DooyaCurtainsFrameCodec.frame(new byte[] { 0x55, 0x12, 0x34, 0x03, 0x03 });
+
+    @Test
+    public void decodesFrameFedInFragments() {
+        for (int i = 0; i < readAnswer.length - 1; i++) {
+            decoder.feed(readAnswer, i, 1);
+            assertEquals(0, decoder.next(frame));
+        }
+        decoder.feed(readAnswer, readAnswer.length - 1, 1);
+
+        assertDecoded(readAnswer);
+        assertEquals(0, decoder.next(frame));
+        assertEquals(0, decoder.size());
+    }
+
+    @Test
+    public void decodesFramesFedTogether() {
+        decoder.feed(concat(controlEcho, readAnswer), 0, controlEcho.length + readAnswer.length);
+
+        assertDecoded(controlEcho);
+        assertDecoded(readAnswer);
+        assertEquals(0, decoder.next(frame));
+    }
+
+    @Test
+    public void skipsFrameWithBadCrc() {
+        byte[] corrupted = readAnswer.clone();
+        corrupted[5] ^= 0x01;
+        byte[] data = concat(corrupted, controlEcho);
+        decoder.feed(data, 0, data.length);
+
+        assertDecoded(controlEcho);
+        assertEquals(1, decoder.getCrcErrors());
+    }
+
+    @Test
+    public void resyncsAfterNoise() {
+        byte[] data = concat(new byte[] { 0x00, 0x55, 0x12, (byte) 0xAA }, readAnswer);
+        decoder.feed(data, 0, data.length);
+
+        assertDecoded(readAnswer);
+        assertEquals(4, decoder.getDiscardedBytes());
+    }
+
+    @Test
+    public void rejectsOversizeLengthWithoutWaiting() {
+        // a read answer header announcing 240 data bytes, followed by the real answer
+        byte[] data = concat(new byte[] { 0x55, 0x12, 0x34, 0x01, (byte) 0xF0 }, controlEcho);
+        decoder.feed(data, 0, data.length);
+
+        assertDecoded(controlEcho);
+    }
+
+    @Test
+    public void rejectsOversizeWriteEcho() {
+        byte[] data = concat(new byte[] { 0x55, 0x12, 0x34, 0x02, 0x02, (byte) 0xFF }, readAnswer);
+        decoder.feed(data, 0, data.length);
+
+        assertDecoded(readAnswer);
+    }
+
+    @Test
+    public void resetDropsBufferedBytes() {
+        decoder.feed(readAnswer, 0, 4);
+        decoder.reset();
+        decoder.feed(controlEcho, 0, controlEcho.length);
+
+        assertDecoded(controlEcho);
+    }
+
+    private void assertDecoded(byte[] expected) {
+        int length = decoder.next(frame);
+        assertEquals(expected.length, length);
+        assertArrayEquals(expected, Arrays.copyOf(frame, length));
+    }
+
+    private static byte[] concat(byte[] first, byte[] second) {
+        byte[] result = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, result, first.length, second.length);
+        return result;
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.mockito.Mockito.*;
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.openhab.core.test.storage.VolatileStorageService;
+import org.openhab.core.thing.Channel;
+import org.openhab.core.thing.ChannelUID;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.ThingStatus;
+import org.openhab.core.thing.ThingStatusDetail;
+import org.openhab.core.thing.ThingStatusInfo;
+import org.openhab.core.thing.binding.ThingHandlerCallback;
+import org.openhab.core.thing.binding.builder.ChannelBuilder;
+import org.openhab.core.thing.binding.builder.ThingBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DooyaCurtainsHandlerBenchmark} measures how a curtain handler decodes answers and
+ * dispatches them to its channels.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DooyaCurtainsHandlerBenchmark {
+
+    private final byte[] blockRequest = { 0x55, 0x12, 0x34, 0x01, 0x02, 0x04 };
+    private final byte[] blockAnswer = { 0x55, 0x12, 0x34, 0x01, 0x04, 0x32, 0x00, 0x00, 0x00, 0x00, 0x00 };
+    private final byte[] positionRequest = { 0x55, 0x12, 0x34, 0x03, 0x04, 0x32 };
+    private final byte[] positionAnswer = { 0x55, 0x12, 0x34, 0x03, 0x04, 0x32, 0x00, 0x00 };
+    private @NonNullByDefault({}) DooyaCurtainsHandler handler;
+    private @NonNullByDefault({}) Channel position;
+
+    @Setup
+    public void setup() {
+        Thing thing = ThingBuilder.create(CURTAIN_THING, "benchmark").build();
+        handler = new DooyaCurtainsHandler(thing, new VolatileStorageService().getStorage(BINDING_ID));
+        handler.setCallback(mock(ThingHandlerCallback.class, withSettings().stubOnly()));
+        // the mocked callback does not track the status, set it as the framework would
+        thing.setStatusInfo(new ThingStatusInfo(ThingStatus.ONLINE, ThingStatusDetail.NONE, null));
+        handler.address = new byte[] { 0x12, 0x34 };
+        position = ChannelBuilder.create(new ChannelUID(thing.getUID(), POSITION), "Dimmer").build();
+    }
+
+    @Benchmark
+    public void blockRead() {
+        handler.response(blockRequest, blockAnswer, null);
+    }
+
+    @Benchmark
+    public void positionCommand() {
+        handler.response(positionRequest, positionAnswer, position);
+    }
+}
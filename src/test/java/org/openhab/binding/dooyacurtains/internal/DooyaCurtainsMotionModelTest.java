@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link DooyaCurtainsMotionModel}. The motor in these tests needs 10 s for a full travel.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsMotionModelTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final DooyaCurtainsMotionModel motion = new DooyaCurtainsMotionModel();
+
+    @Test
+    public void doesNotStartBeforeTravelTimeIsLearned() {
+        assertFalse(motion.start(50, 0));
+        motion.observe(20, false, 0);
+
+        assertFalse(motion.start(50, 0));
+        assertEquals(20, motion.estimate(SECOND));
+        assertEquals(0, motion.getTravelTime());
+    }
+
+    @Test
+    public void learnsTravelTimeFromReadingsWhileMoving() {
+        motion.observe(0, true, 0);
+        assertFalse(motion.observe(3, true, SECOND * 3 / 10));
+
+        assertTrue(motion.observe(10, true, SECOND));
+        assertEquals(10 * SECOND, motion.getTravelTime());
+        assertEquals(SECOND / 10, motion.getStepTime());
+    }
+
+    @Test
+    public void ignoresReadingsOfAStoppedMotor() {
+        motion.observe(0, false, 0);
+
+        assertFalse(motion.observe(50, false, SECOND));
+        assertEquals(0, motion.getTravelTime());
+    }
+
+    @Test
+    public void interpolatesCommandedMotion() {
+        learn();
+
+        assertTrue(motion.start(60, 2 * SECOND));
+        assertEquals(20, motion.estimate(3 * SECOND));
+        assertEquals(4 * SECOND, motion.remaining(3 * SECOND));
+        assertTrue(motion.isMoving(3 * SECOND));
+        assertEquals(60, motion.estimate(7 * SECOND));
+        assertEquals(60, motion.estimate(20 * SECOND));
+        assertFalse(motion.isMoving(7 * SECOND));
+    }
+
+    @Test
+    public void continuesFromTheReadPosition() {
+        learn();
+        motion.start(60, 2 * SECOND);
+
+        // the motor lags behind the estimate of 15 %
+        motion.observe(13, true, SECOND * 25 / 10);
+
+        assertEquals(23, motion.estimate(SECOND * 35 / 10));
+        assertEquals(37 * SECOND / 10, motion.remaining(SECOND * 35 / 10));
+    }
+
+    @Test
+    public void stopKeepsTheEstimatedPosition() {
+        learn();
+        motion.start(0, 2 * SECOND);
+
+        motion.stop(SECOND * 25 / 10);
+
+        assertEquals(5, motion.estimate(10 * SECOND));
+        assertFalse(motion.isMoving(SECOND * 25 / 10));
+        assertEquals(0, motion.remaining(SECOND * 25 / 10));
+    }
+
+    @Test
+    public void endsMotionWhenTheMotorReportsStop() {
+        learn();
+        motion.start(60, 2 * SECOND);
+
+        motion.observe(40, false, 4 * SECOND);
+
+        assertFalse(motion.isMoving(4 * SECOND));
+        assertEquals(40, motion.estimate(5 * SECOND));
+    }
+
+    /**
+     * Learns a travel time of 10 s and leaves the curtain stopped at 10 %.
+     */
+    private void learn() {
+        motion.observe(0, true, 0);
+        motion.observe(10, true, SECOND);
+        motion.observe(10, false, SECOND);
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.mockito.Mockito.*;
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.binding.dooyacurtains.internal.DooyaCurtainsTransaction.Priority;
+import org.openhab.core.config.core.Configuration;
+import org.openhab.core.test.storage.VolatileStorageService;
+import org.openhab.core.thing.Bridge;
+import org.openhab.core.thing.Thing;
+import org.openhab.core.thing.binding.ThingHandlerCallback;
+import org.openhab.core.thing.binding.builder.BridgeBuilder;
+import org.openhab.core.thing.binding.builder.ThingBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The {@link DooyaCurtainsPollCycleBenchmark} measures one complete poll cycle of the bridge: every
+ * curtain queues its block read, the bridge sends all frames to a simulated bus without latency and
+ * dispatches the answers to the curtain handlers. The bus is reached through the serial port or through
+ * a local TCP gateway.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DooyaCurtainsPollCycleBenchmark {
+
+    @Param({ "1", "10", "100" })
+    public int curtains;
+
+    @Param({ "serial", "tcp" })
+    public String transport = "serial";
+
+    private @NonNullByDefault({}) DooyaCurtainsSimulatedBus bus;
+    private @Nullable DooyaCurtainsTcpGateway gateway;
+    private @NonNullByDefault({}) DooyaCurtainsRS485BridgeHandler bridgeHandler;
+    private DooyaCurtainsHandler[] handlers = new DooyaCurtainsHandler[0];
+    private byte[][] requests = new byte[0][];
+    private byte[][] frames = new byte[0][];
+
+    @Setup
+    public void setup() throws Exception {
+        bus = new DooyaCurtainsSimulatedBus();
+        ThingHandlerCallback callback = mock(ThingHandlerCallback.class, withSettings().stubOnly());
+        Bridge bridge;
+        if ("tcp".equals(transport)) {
+            DooyaCurtainsTcpGateway gateway = new DooyaCurtainsTcpGateway(bus);
+            this.gateway = gateway;
+            bridge = BridgeBuilder.create(TCP_BRIDGE, "benchmark").withConfiguration(
+                    new Configuration(Map.of("host", gateway.getHost(), "port", gateway.getPort()))).build();
+        } else {
+            bridge = BridgeBuilder.create(RS485_BRIDGE, "benchmark")
+                    .withConfiguration(new Configuration(Map.of("serialPort", DooyaCurtainsSimulatedBus.PORT)))
+                    .build();
+        }
+        bridgeHandler = new DooyaCurtainsRS485BridgeHandler(bridge, bus.getSerialPortManager());
+        bridgeHandler.setCallback(callback);
+        bridgeHandler.startBusThread();
+
+        handlers = new DooyaCurtainsHandler[curtains];
+        requests = new byte[curtains][];
+        frames = new byte[curtains][];
+        for (int i = 0; i < curtains; i++) {
+            Thing thing = ThingBuilder.create(CURTAIN_THING, "curtain" + i).withBridge(bridge.getUID()).build();
+            handlers[i] = new DooyaCurtainsHandler(thing, new VolatileStorageService().getStorage(BINDING_ID));
+            handlers[i].setCallback(callback);
+            handlers[i].address = new byte[] { 0x01, (byte) i };
+            bus.addMotor(0x0100 | i);
+            requests[i] = new byte[] { 0x55, 0x01, (byte) i, 0x01, REGISTER_POSITION, 0x04 };
+            frames[i] = DooyaCurtainsFrameCodec.frame(requests[i]);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        bridgeHandler.dispose();
+        DooyaCurtainsTcpGateway gateway = this.gateway;
+        if (gateway != null) {
+            gateway.close();
+        }
+        bus.close();
+    }
+
+    @Benchmark
+    public byte[] pollCycle() throws Exception {
+        CompletableFuture<byte[]> last = CompletableFuture.completedFuture(new byte[0]);
+        for (int i = 0; i < curtains; i++) {
+            DooyaCurtainsTransaction transaction = new DooyaCurtainsTransaction(handlers[i], null, requests[i],
+                    Priority.POLL);
+            transaction.frame = frames[i];
+            last = bridgeHandler.submit(transaction);
+        }
+        // polls of equal priority leave the queue in order, so the cycle is done with the last one
+        return last.get(10, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.openhab.binding.dooyacurtains.internal.DooyaCurtainsBindingConstants.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.openhab.core.test.storage.VolatileStorageService;
+import org.openhab.core.thing.binding.builder.ThingBuilder;
+
+/**
+ * Tests for {@link DooyaCurtainsPollScheduler}. The bus is simulated by calling
+ * {@link DooyaCurtainsPollScheduler#next} every 10 ms.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsPollSchedulerTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final long TICK = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private final VolatileStorageService storageService = new VolatileStorageService();
+    private final DooyaCurtainsPollScheduler scheduler = new DooyaCurtainsPollScheduler();
+
+    @Test
+    public void pollsEveryCurtainInTurn() {
+        List<DooyaCurtainsHandler> curtains = curtains(3, 3 * SECOND);
+
+        List<DooyaCurtainsHandler> polls = run(0, 30 * SECOND, h -> 3 * SECOND, null);
+
+        assertEquals(30, polls.size());
+        for (int i = 0; i < polls.size(); i++) {
+            assertSame(curtains.get(i % 3), polls.get(i));
+        }
+    }
+
+    @Test
+    public void spacesIdlePollsEvenly() {
+        curtains(4, 2 * SECOND);
+        List<Long> times = new ArrayList<>();
+
+        run(0, 20 * SECOND, h -> 2 * SECOND, times);
+
+        assertEquals(40, times.size());
+        for (int i = 1; i < times.size(); i++) {
+            assertTrue(Math.abs(times.get(i) - times.get(i - 1) - SECOND / 2) <= TICK);
+        }
+    }
+
+    @Test
+    public void stretchesPollsWhenTheBusCannotKeepUp() {
+        List<DooyaCurtainsHandler> curtains = curtains(3, SECOND);
+        scheduler.recordPoll(SECOND / 2);
+        List<Long> times = new ArrayList<>();
+
+        List<DooyaCurtainsHandler> polls = run(0, 30 * SECOND, h -> SECOND, times);
+
+        assertEquals(1.5, scheduler.getRequiredUtilization(), 1e-9);
+        assertEquals(1875 * TimeUnit.MILLISECONDS.toNanos(1), scheduler.getSustainableInterval());
+        for (int i = 1; i < times.size(); i++) {
+            assertTrue(times.get(i) - times.get(i - 1) >= 625 * TimeUnit.MILLISECONDS.toNanos(1) - TICK);
+        }
+        // every curtain gets the same share of the bus
+        Map<DooyaCurtainsHandler, Integer> counts = new HashMap<>();
+        polls.forEach(curtain -> counts.merge(curtain, 1, Integer::sum));
+        for (DooyaCurtainsHandler curtain : curtains) {
+            assertEquals(polls.size() / 3.0, counts.getOrDefault(curtain, 0), 1);
+        }
+    }
+
+    @Test
+    public void requestedPollIsNotSpacedOut() {
+        List<DooyaCurtainsHandler> curtains = curtains(2, 10 * SECOND);
+        assertSame(curtains.get(0), scheduler.next(0, h -> 10 * SECOND));
+
+        scheduler.request(curtains.get(0), SECOND / 10);
+
+        assertEquals(SECOND / 10, scheduler.timeUntilNext(0));
+        assertSame(curtains.get(0), scheduler.next(SECOND / 10, h -> 10 * SECOND));
+        // the other curtain still waits for the next idle slot
+        assertNull(scheduler.next(SECOND / 10, h -> 10 * SECOND));
+        assertSame(curtains.get(1), scheduler.next(5 * SECOND, h -> 10 * SECOND));
+    }
+
+    @Test
+    public void fastPollsFollowTheirInterval() {
+        List<DooyaCurtainsHandler> curtains = curtains(2, 10 * SECOND);
+        long fast = SECOND / 4;
+
+        List<DooyaCurtainsHandler> polls = run(0, 2 * SECOND, h -> h == curtains.get(0) ? fast : 10 * SECOND, null);
+
+        long fastPolls = polls.stream().filter(curtain -> curtain == curtains.get(0)).count();
+        assertEquals(8, fastPolls);
+    }
+
+    @Test
+    public void reportsNothingDueWithoutCurtains() {
+        assertEquals(Long.MAX_VALUE, scheduler.timeUntilNext(0));
+        assertNull(scheduler.next(0, h -> SECOND));
+        assertEquals(-1, scheduler.getSustainableInterval());
+    }
+
+    @Test
+    public void removedCurtainIsNotPolled() {
+        List<DooyaCurtainsHandler> curtains = curtains(2, SECOND);
+        scheduler.remove(curtains.get(0));
+
+        List<DooyaCurtainsHandler> polls = run(0, 5 * SECOND, h -> SECOND, null);
+
+        assertFalse(polls.contains(curtains.get(0)));
+        assertFalse(scheduler.request(curtains.get(0), 0));
+        assertEquals(1, scheduler.size());
+    }
+
+    private List<DooyaCurtainsHandler> curtains(int count, long idleInterval) {
+        List<DooyaCurtainsHandler> curtains = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            DooyaCurtainsHandler curtain = new DooyaCurtainsHandler(
+                    ThingBuilder.create(CURTAIN_THING, "curtain" + i).build(),
+                    storageService.getStorage(BINDING_ID));
+            scheduler.add(curtain, idleInterval, 0);
+            curtains.add(curtain);
+        }
+        return curtains;
+    }
+
+    private List<DooyaCurtainsHandler> run(long from, long to, ToLongFunction<DooyaCurtainsHandler> interval,
+            @Nullable List<Long> times) {
+        List<DooyaCurtainsHandler> polls = new ArrayList<>();
+        for (long now = from; now < to; now += TICK) {
+            DooyaCurtainsHandler curtain = scheduler.next(now, interval);
+            if (curtain != null) {
+                polls.add(curtain);
+                if (times != null) {
+                    times.add(now);
+                }
+            }
+        }
+        return polls;
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests for {@link DooyaCurtainsResponseTimer}.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsResponseTimerTest {
+
+    private static final long MILLISECOND = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAXIMUM = 200 * MILLISECOND;
+
+    private final DooyaCurtainsResponseTimer timer = new DooyaCurtainsResponseTimer();
+
+    @Test
+    public void usesTheMaximumUntilSomethingIsLearned() {
+        assertEquals(MAXIMUM, timer.timeout(MILLISECOND, MAXIMUM));
+        assertEquals(-1, timer.getResponseTime());
+    }
+
+    @Test
+    public void followsTheResponseTime() {
+        for (int i = 0; i < 50; i++) {
+            timer.record(20 * MILLISECOND);
+        }
+
+        assertEquals(20 * MILLISECOND, timer.getResponseTime(), MILLISECOND);
+        assertTrue(timer.timeout(MILLISECOND, MAXIMUM) < 25 * MILLISECOND);
+    }
+
+    @Test
+    public void timeoutsStopGrowingAtTheMaximum() {
+        timer.record(20 * MILLISECOND);
+
+        for (int i = 0; i < 2000; i++) {
+            timer.recordTimeout(MAXIMUM);
+        }
+
+        assertEquals(MAXIMUM, timer.getResponseTime());
+        assertEquals(MAXIMUM, timer.timeout(MILLISECOND, MAXIMUM));
+        // a motor which answers again is learned back
+        for (int i = 0; i < 100; i++) {
+            timer.record(20 * MILLISECOND);
+        }
+        assertTrue(timer.timeout(MILLISECOND, MAXIMUM) < MAXIMUM);
+    }
+}
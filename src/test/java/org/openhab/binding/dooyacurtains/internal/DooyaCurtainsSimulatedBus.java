@@ -0,0 +1,371 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+import org.openhab.core.io.transport.serial.SerialPort;
+import org.openhab.core.io.transport.serial.SerialPortEvent;
+import org.openhab.core.io.transport.serial.SerialPortEventListener;
+import org.openhab.core.io.transport.serial.SerialPortIdentifier;
+import org.openhab.core.io.transport.serial.SerialPortManager;
+
+/**
+ * The {@link DooyaCurtainsSimulatedBus} emulates a RS485 bus with Dooya motors behind the
+ * {@link SerialPortManager} and {@link SerialPort} abstractions, so the bridge and curtain handlers
+ * can run end-to-end without hardware.
+ *
+ * Motors answer reads, writes and control commands with a correct CRC and move over time towards
+ * their target position. The turnaround latency, the share of dropped answers and the share of
+ * answers with a corrupted byte can be configured. With no latency configured answers are written
+ * from the sending thread before the write returns.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsSimulatedBus implements AutoCloseable {
+
+    public static final String PORT = "/dev/simulated";
+    public static final int BROADCAST = 0xFFFF;
+    public static final int PROTOCOL_VERSION = 1;
+
+    /**
+     * A single simulated motor. Position 0 is fully open, 100 fully closed.
+     */
+    public static class Motor {
+        public volatile int address;
+        public volatile int direction;
+        public volatile boolean limitsSet = true;
+        // time for a full travel from 0 to 100
+        public volatile long travelTimeMillis = 20000;
+        private double position;
+        private int target;
+        private long lastUpdate = System.nanoTime();
+
+        Motor(int address, int position) {
+            this.address = address;
+            this.position = position;
+            this.target = position;
+        }
+
+        public synchronized int position() {
+            update();
+            return (int) Math.round(position);
+        }
+
+        public synchronized int state() {
+            update();
+            if (target > position) {
+                return 2;
+            }
+            return target < position ? 1 : 0;
+        }
+
+        public synchronized void moveTo(int target) {
+            update();
+            this.target = Math.max(0, Math.min(100, target));
+        }
+
+        public synchronized void stop() {
+            update();
+            position = Math.round(position);
+            target = (int) position;
+        }
+
+        private void update() {
+            long now = System.nanoTime();
+            double step = (now - lastUpdate) / (TimeUnit.MILLISECONDS.toNanos(travelTimeMillis) / 100.0);
+            lastUpdate = now;
+            if (target > position) {
+                position = Math.min(target, position + step);
+            } else if (target < position) {
+                position = Math.max(target, position - step);
+            }
+        }
+    }
+
+    private final Map<Integer, Motor> motors = new ConcurrentHashMap<>();
+    private final SerialPortManager serialPortManager = mock(SerialPortManager.class, withSettings().stubOnly());
+    private final SerialPortEvent dataAvailable = mock(SerialPortEvent.class, withSettings().stubOnly());
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final Random random = new Random(1);
+    private final byte[] answer = new byte[DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH];
+    private final byte[] received = new byte[4096];
+    private int readIndex;
+    private int writeIndex;
+    private volatile long latencyMicros;
+    private volatile double dropRate;
+    private volatile double corruptRate;
+    private volatile long frames;
+    private volatile long droppedAnswers;
+    private volatile long corruptedAnswers;
+    private @Nullable SerialPortEventListener listener;
+
+    private final InputStream input = new InputStream() {
+        @Override
+        public int read() {
+            synchronized (DooyaCurtainsSimulatedBus.this) {
+                if (readIndex == writeIndex) {
+                    return -1;
+                }
+                return received[readIndex++ & (received.length - 1)] & 0xFF;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            synchronized (DooyaCurtainsSimulatedBus.this) {
+                int count = Math.min(len, writeIndex - readIndex);
+                for (int i = 0; i < count; i++) {
+                    b[off + i] = received[readIndex++ & (received.length - 1)];
+                }
+                return count;
+            }
+        }
+
+        @Override
+        public int available() {
+            synchronized (DooyaCurtainsSimulatedBus.this) {
+                return writeIndex - readIndex;
+            }
+        }
+    };
+
+    private final OutputStream output = new OutputStream() {
+        @Override
+        public void write(int b) {
+            write(new byte[] { (byte) b }, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            frame(b, off, len);
+        }
+    };
+
+    public DooyaCurtainsSimulatedBus() throws Exception {
+        SerialPort serialPort = mock(SerialPort.class, withSettings().stubOnly());
+        when(serialPort.getInputStream()).thenReturn(input);
+        when(serialPort.getOutputStream()).thenReturn(output);
+        doAnswer(invocation -> {
+            listener = invocation.getArgument(0);
+            return null;
+        }).when(serialPort).addEventListener(any());
+        doAnswer(invocation -> {
+            listener = null;
+            return null;
+        }).when(serialPort).removeEventListener();
+        SerialPortIdentifier identifier = mock(SerialPortIdentifier.class, withSettings().stubOnly());
+        when(identifier.open(anyString(), anyInt())).thenReturn(serialPort);
+        when(serialPortManager.getIdentifier(PORT)).thenReturn(identifier);
+        when(dataAvailable.getEventType()).thenReturn(SerialPortEvent.DATA_AVAILABLE);
+    }
+
+    public SerialPortManager getSerialPortManager() {
+        return serialPortManager;
+    }
+
+    /**
+     * Gives direct access to the bus for stand-ins of other transports, see {@link DooyaCurtainsTcpGateway}.
+     * The listener is called whenever an answer has been added to the input stream.
+     */
+    InputStream getInputStream() {
+        return input;
+    }
+
+    OutputStream getOutputStream() {
+        return output;
+    }
+
+    void setListener(@Nullable SerialPortEventListener listener) {
+        this.listener = listener;
+    }
+
+    public Motor addMotor(int address) {
+        Motor motor = new Motor(address, 50);
+        motors.put(address, motor);
+        return motor;
+    }
+
+    public @Nullable Motor getMotor(int address) {
+        return motors.get(address);
+    }
+
+    /**
+     * Sets the time between the end of a request and the first byte of the answer.
+     */
+    public DooyaCurtainsSimulatedBus withLatency(long latency, TimeUnit unit) {
+        latencyMicros = unit.toMicros(latency);
+        return this;
+    }
+
+    public DooyaCurtainsSimulatedBus withDropRate(double dropRate) {
+        this.dropRate = dropRate;
+        return this;
+    }
+
+    public DooyaCurtainsSimulatedBus withCorruptRate(double corruptRate) {
+        this.corruptRate = corruptRate;
+        return this;
+    }
+
+    public long getFrames() {
+        return frames;
+    }
+
+    public long getDroppedAnswers() {
+        return droppedAnswers;
+    }
+
+    public long getCorruptedAnswers() {
+        return corruptedAnswers;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void frame(byte[] frame, int offset, int length) {
+        int answerLength;
+        synchronized (this) {
+            frames++;
+            if (length < 7 || frame[offset] != 0x55 || DooyaCurtainsCRC16Modbus.compute(frame, offset,
+                    length - 2) != ((frame[offset + length - 2] & 0xFF) | (frame[offset + length - 1] & 0xFF) << 8)) {
+                // motors ignore frames with a broken CRC
+                return;
+            }
+            int address = (frame[offset + 1] & 0xFF) << 8 | (frame[offset + 2] & 0xFF);
+            if (address == BROADCAST) {
+                for (Motor motor : motors.values()) {
+                    execute(motor, frame, offset, length);
+                }
+                return;
+            }
+            Motor motor = address == 0 ? motors.values().stream().findFirst().orElse(null) : motors.get(address);
+            if (motor == null) {
+                return;
+            }
+            answerLength = execute(motor, frame, offset, length);
+            if (answerLength == 0) {
+                return;
+            }
+            if (random.nextDouble() < dropRate) {
+                droppedAnswers++;
+                return;
+            }
+            if (random.nextDouble() < corruptRate) {
+                corruptedAnswers++;
+                answer[random.nextInt(answerLength)] ^= (byte) (1 << random.nextInt(8));
+            }
+        }
+        byte[] copy = new byte[answerLength];
+        System.arraycopy(answer, 0, copy, 0, answerLength);
+        long latency = latencyMicros;
+        if (latency > 0) {
+            scheduler.schedule(() -> deliver(copy), latency, TimeUnit.MICROSECONDS);
+        } else {
+            deliver(copy);
+        }
+    }
+
+    /**
+     * Applies a request to the motor and writes the answer to {@code answer}.
+     *
+     * @return length of the answer
+     */
+    private int execute(Motor motor, byte[] frame, int offset, int length) {
+        int function = frame[offset + 3];
+        int register = frame[offset + 4] & 0xFF;
+        System.arraycopy(frame, offset, answer, 0, length - 2);
+        if (function == 0x01) {
+            int count = frame[offset + 5] & 0xFF;
+            answer[4] = (byte) count;
+            for (int i = 0; i < count; i++) {
+                answer[5 + i] = (byte) register(motor, register + i);
+            }
+            DooyaCurtainsCRC16Modbus.append(answer, 0, 5 + count);
+            return 5 + count + 2;
+        }
+        if (function == 0x02) {
+            if (register == 0x00 && length >= 10) {
+                motors.remove(motor.address);
+                motor.address = (frame[offset + 6] & 0xFF) << 8 | (frame[offset + 7] & 0xFF);
+                motors.put(motor.address, motor);
+            } else if (register == 0x03) {
+                motor.direction = frame[offset + 6];
+            }
+        } else if (function == 0x03) {
+            switch (register) {
+                case 0x01:
+                    motor.moveTo(0);
+                    break;
+                case 0x02:
+                    motor.moveTo(100);
+                    break;
+                case 0x03:
+                    motor.stop();
+                    break;
+                case 0x04:
+                    motor.moveTo(frame[offset + 5]);
+                    break;
+            }
+        }
+        // writes and control commands are echoed
+        DooyaCurtainsCRC16Modbus.append(answer, 0, length - 2);
+        return length;
+    }
+
+    private int register(Motor motor, int register) {
+        switch (register) {
+            case 0x00:
+                return motor.address >> 8;
+            case 0x01:
+                return motor.address & 0xFF;
+            case 0x02:
+                return motor.limitsSet ? motor.position() : 0xFF;
+            case 0x03:
+                return motor.direction;
+            case 0x05:
+                return motor.state();
+            case 0xFE:
+                return PROTOCOL_VERSION;
+            default:
+                return 0;
+        }
+    }
+
+    private void deliver(byte[] data) {
+        synchronized (this) {
+            for (byte b : data) {
+                received[writeIndex++ & (received.length - 1)] = b;
+            }
+        }
+        SerialPortEventListener listener = this.listener;
+        if (listener != null) {
+            listener.serialEvent(dataAvailable);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2010-2024 Contributors to the openHAB project
+ *
+ * See the NOTICE file(s) distributed with this work for additional
+ * information.
+ *
+ * This program and the accompanying materials are made available under the
+ * terms of the Eclipse Public License 2.0 which is available at
+ * http://www.eclipse.org/legal/epl-2.0
+ *
+ * SPDX-License-Identifier: EPL-2.0
+ */
+package org.openhab.binding.dooyacurtains.internal;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.jdt.annotation.NonNullByDefault;
+import org.eclipse.jdt.annotation.Nullable;
+
+/**
+ * The {@link DooyaCurtainsTcpGateway} is a local stand-in for an Ethernet to RS485 converter. It accepts
+ * one TCP connection at a time on the loopback interface and forwards the raw bytes to and from a
+ * {@link DooyaCurtainsSimulatedBus}, so the TCP bridge can run end-to-end without hardware.
+ *
+ * The simulated motors expect every write to hold complete frames, which holds for the short frames of
+ * the bridge on a loopback connection.
+ *
+ * @author Petr Shatsillo - Initial contribution
+ */
+@NonNullByDefault
+public class DooyaCurtainsTcpGateway implements AutoCloseable {
+
+    private final DooyaCurtainsSimulatedBus bus;
+    private final ServerSocketChannel server;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final byte[] answer = new byte[DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH];
+    private volatile @Nullable SocketChannel client;
+    private volatile long connections;
+
+    public DooyaCurtainsTcpGateway(DooyaCurtainsSimulatedBus bus) throws IOException {
+        this.bus = bus;
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        bus.setListener(event -> forwardAnswers());
+        executor.execute(this::serve);
+    }
+
+    public String getHost() {
+        return InetAddress.getLoopbackAddress().getHostAddress();
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    /**
+     * Returns the number of accepted connections, which grows when the bridge reconnects.
+     */
+    public long getConnections() {
+        return connections;
+    }
+
+    /**
+     * Drops the current connection, like a gateway which is restarted.
+     */
+    public void disconnectClient() throws IOException {
+        SocketChannel client = this.client;
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        bus.setListener(null);
+        server.close();
+        disconnectClient();
+        executor.shutdownNow();
+    }
+
+    private void serve() {
+        ByteBuffer buffer = ByteBuffer.allocate(DooyaCurtainsFrameCodec.MAX_FRAME_LENGTH);
+        while (server.isOpen()) {
+            try (SocketChannel client = server.accept()) {
+                this.client = client;
+                connections++;
+                while (client.read(buffer) >= 0) {
+                    bus.getOutputStream().write(buffer.array(), 0, buffer.position());
+                    buffer.clear();
+                }
+            } catch (IOException e) {
+                // connection or server closed
+            }
+            client = null;
+        }
+    }
+
+    private synchronized void forwardAnswers() {
+        InputStream input = bus.getInputStream();
+        try {
+            int length;
+            while ((length = input.read(answer, 0, answer.length)) > 0) {
+                SocketChannel client = this.client;
+                if (client != null) {
+                    ByteBuffer buffer = ByteBuffer.wrap(answer, 0, length);
+                    while (buffer.hasRemaining()) {
+                        client.write(buffer);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            // the bridge has disconnected, the answer is lost like on a real gateway
+        }
+    }
+}